@@ -0,0 +1,107 @@
+package pepse.bench;
+
+import danogl.GameObject;
+import danogl.collisions.Layer;
+import danogl.util.Vector2;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pepse.world.Terrain;
+import pepse.world.TerrainBaker;
+import pepse.world.chunks.Chunk;
+import pepse.world.chunks.ChunkBuilder;
+import pepse.world.chunks.ChunkMaterializer;
+import pepse.world.chunks.ObjectSink;
+import pepse.world.trees.Flora;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The full cycle of a chunk: generating its data, building its objects, adding them to the game,
+ * removing them again and releasing them to the pools.
+ *
+ * The game's object collection is replaced by a sink that only counts, so the results cover the
+ * game code and not the engine.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChunkCycleBenchmark {
+    private static final Vector2 WINDOW_DIMENSIONS = new Vector2(1280, 720);
+    private static final int HEIGHT_CACHE_CHUNKS = 32;
+    private static final long TEXTURE_CACHE_BYTES = 32L << 20;
+
+    @Param({"1234", "98765"})
+    public int seed;
+
+    @Param({"10", "32"})
+    public int chunkBlocks;
+
+    @Param({"false", "true"})
+    public boolean mergeBuriedColliders;
+
+    @Param({"false", "true"})
+    public boolean bakedTerrain;
+
+    /**
+     * when true, the avatar stands on the height field and the terrain has no invisible colliders,
+     * as in the game
+     */
+    @Param({"false", "true"})
+    public boolean heightFieldGround;
+
+    private ChunkBuilder builder;
+    private ChunkMaterializer materializer;
+    private int objectsInGame;
+    private int chunkId;
+
+    @Setup
+    public void setUp() {
+        Terrain terrain = new Terrain(WINDOW_DIMENSIONS, seed, new Terrain.Options()
+                .heightCache(chunkBlocks, HEIGHT_CACHE_CHUNKS)
+                .mergeBuriedColliders(mergeBuriedColliders)
+                .baker(bakedTerrain ? new TerrainBaker(TEXTURE_CACHE_BYTES) : null)
+                .invisibleColliders(!heightFieldGround));
+        Flora flora = new Flora(terrain::groundHeightAt, seed, energy -> { });
+        builder = new ChunkBuilder(terrain, flora, chunkBlocks, Layer.STATIC_OBJECTS,
+                Layer.STATIC_OBJECTS - 1, Layer.DEFAULT - 1);
+        materializer = new ChunkMaterializer(new ObjectSink() {
+            @Override
+            public void add(GameObject obj, int layer) {
+                objectsInGame++;
+            }
+
+            @Override
+            public void remove(GameObject obj, int layer) {
+                objectsInGame--;
+            }
+        }, builder::recycle);
+        chunkId = 0;
+    }
+
+    /**
+     * @return the number of objects of the loaded chunk.
+     */
+    @Benchmark
+    public int loadAndUnload() {
+        int id = chunkId++;
+        Chunk chunk = builder.build(id, builder.generate(id));
+        materializer.attach(chunk, "benchmark");
+        materializer.flush(id);
+        int loaded = objectsInGame;
+        materializer.detach(chunk);
+        materializer.flush(id);
+        return loaded;
+    }
+}
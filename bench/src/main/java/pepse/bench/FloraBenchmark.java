@@ -0,0 +1,104 @@
+package pepse.bench;
+
+import danogl.GameObject;
+import danogl.util.Vector2;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pepse.world.Block;
+import pepse.world.Terrain;
+import pepse.world.trees.Flora;
+import pepse.world.trees.FloraPack;
+import pepse.world.trees.FloraPools;
+import pepse.world.trees.Tree;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Flora#createInRange(int, int)} per chunk and {@link Tree#createAt} per tree.
+ *
+ * Objects are released to the pools after every invocation, as the game does once the chunk is
+ * unloaded.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FloraBenchmark {
+    private static final Vector2 WINDOW_DIMENSIONS = new Vector2(1280, 720);
+    private static final int HEIGHT_CACHE_CHUNKS = 32;
+
+    @Param({"1234", "98765"})
+    public int seed;
+
+    @Param({"10", "32"})
+    public int chunkBlocks;
+
+    @Param({"false", "true"})
+    public boolean bakedCanopies;
+
+    private Terrain terrain;
+    private Flora flora;
+    private FloraPools pools;
+    private Random random;
+    private int chunkId;
+
+    @Setup
+    public void setUp() {
+        terrain = new Terrain(WINDOW_DIMENSIONS, seed,
+                new Terrain.Options().heightCache(chunkBlocks, HEIGHT_CACHE_CHUNKS));
+        flora = new Flora(terrain::groundHeightAt, seed, energy -> { }, bakedCanopies);
+        pools = new FloraPools(1, 32, 1, 8);
+        random = new Random(seed);
+        chunkId = 0;
+    }
+
+    /**
+     * @return the number of objects created for the next chunk.
+     */
+    @Benchmark
+    public int createChunk() {
+        int chunkWidth = chunkBlocks * Block.SIZE;
+        int startX = chunkId++ * chunkWidth;
+        FloraPack pack = flora.createInRange(startX, startX + chunkWidth);
+        int created = 0;
+        for (GameObject obj : pack.getTrunks()) {
+            flora.recycle(obj);
+            created++;
+        }
+        for (GameObject obj : pack.getLeaves()) {
+            flora.recycle(obj);
+            created++;
+        }
+        for (GameObject obj : pack.getFruits()) {
+            flora.recycle(obj);
+            created++;
+        }
+        return created;
+    }
+
+    /**
+     * @return the number of leaves of a single tree.
+     */
+    @Benchmark
+    public int createTree() {
+        int x = random.nextInt(1 << 16) * Block.SIZE;
+        Tree tree = Tree.createAt(x, terrain::groundHeightAt, random.nextLong(), random.nextLong(),
+                energy -> { }, pools, bakedCanopies);
+        pools.recycle(tree.trunk());
+        tree.leaves().forEach(pools::recycle);
+        tree.fruits().forEach(pools::recycle);
+        return tree.leaves().size();
+    }
+}
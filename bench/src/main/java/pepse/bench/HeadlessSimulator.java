@@ -0,0 +1,235 @@
+package pepse.bench;
+
+import danogl.GameObject;
+import danogl.gui.rendering.RectangleRenderable;
+import danogl.gui.rendering.Renderable;
+import danogl.util.Vector2;
+import pepse.PepseWorld;
+import pepse.world.Block;
+import pepse.world.StaticObject;
+import pepse.world.TerrainBaker;
+import pepse.world.avatar.Avatar;
+import pepse.world.avatar.GroundSolver;
+import pepse.world.chunks.ChunkStore;
+import pepse.world.chunks.DistantChunks;
+import pepse.world.chunks.ObjectSink;
+
+import java.awt.Color;
+import java.awt.event.KeyEvent;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Runs the world of the game without a window and reports frame times.
+ *
+ * The avatar sprints to the right from a scripted input, jumping every few seconds, through the
+ * same {@link PepseWorld} as in {@link pepse.PepseGameManager}: chunks are streamed in and out,
+ * fruits are picked up, leaves move in the wind and the day/night objects are updated. The
+ * engine's object collection is replaced by a plain collection that updates every object once per
+ * frame, and the avatar stands on the terrain through a {@link GroundSolver}, as in the game.
+ *
+ * Usage: {@code HeadlessSimulator [frames] [seed] [leaves] [blocks] [nolod] [blockground]}.
+ * Trees are drawn with baked canopies, the terrain with baked textures and the chunks beyond the
+ * loaded ones by {@link DistantChunks}, as in the game. {@code leaves} and {@code blocks} give
+ * every leaf and every terrain block its own object instead, and {@code nolod} shows nothing
+ * beyond the loaded chunks. {@code blockground} makes the top terrain blocks collide with the
+ * avatar instead of using the solver; there are no engine collisions here, so the simulator then
+ * puts the avatar back on top of the blocks itself. At the end it prints the p50, p99 and maximal
+ * frame time and the number of objects alive per layer.
+ */
+public class HeadlessSimulator {
+    private static final int DEFAULT_FRAMES = 120_000;
+    private static final float DELTA_TIME = 1f / 60f;
+    private static final Vector2 WINDOW_DIMENSIONS = new Vector2(1280, 720);
+
+    /**
+     * the avatar jumps once every this many frames
+     */
+    private static final int JUMP_PERIOD_FRAMES = 120;
+
+    private static final Renderable PLACEHOLDER = new RectangleRenderable(Color.MAGENTA);
+
+    /**
+     * A stand-in for the engine's object collection. counts the updates, and how many of them
+     * went to static objects that returned right away. objects of sleeping chunks are not in
+     * the collection, so they get no updates.
+     */
+    private static class LayeredCollection implements ObjectSink {
+        private final Map<Integer, Set<GameObject>> layers = new TreeMap<>();
+        private final Map<Integer, Integer> peak = new TreeMap<>();
+        private long updates = 0;
+        private long staticUpdates = 0;
+        private long movingUpdates = 0;
+
+        @Override
+        public void add(GameObject obj, int layer) {
+            Set<GameObject> objects = layers.computeIfAbsent(layer, l -> new LinkedHashSet<>());
+            objects.add(obj);
+            peak.merge(layer, objects.size(), Math::max);
+        }
+
+        @Override
+        public void remove(GameObject obj, int layer) {
+            Set<GameObject> objects = layers.get(layer);
+            if (objects != null) {
+                objects.remove(obj);
+            }
+        }
+
+        private void update(float deltaTime) {
+            for (Set<GameObject> objects : layers.values()) {
+                for (GameObject obj : objects) {
+                    if (obj instanceof StaticObject) {
+                        staticUpdates++;
+                    } else {
+                        movingUpdates++;
+                    }
+                    obj.update(deltaTime);
+                }
+                updates += objects.size();
+            }
+        }
+    }
+
+    private final LayeredCollection objects = new LayeredCollection();
+    private final ChunkStore store;
+    private final PepseWorld world;
+    private final boolean heightFieldGround;
+    private int frame = 0;
+
+    /**
+     * updates the objects of sleeping chunks would have had
+     */
+    private long sleepingUpdates = 0;
+
+    private HeadlessSimulator(int seed, PepseWorld.Options options, boolean heightFieldGround)
+            throws IOException {
+        this.heightFieldGround = heightFieldGround;
+        store = new ChunkStore(Files.createTempDirectory("pepse-sim"));
+        world = new PepseWorld(WINDOW_DIMENSIONS, seed, store, objects, objects,
+                this::isKeyPressed, path -> PLACEHOLDER, options);
+    }
+
+    private boolean isKeyPressed(int key) {
+        return key == KeyEvent.VK_RIGHT
+                || (key == KeyEvent.VK_SPACE && frame % JUMP_PERIOD_FRAMES == 0);
+    }
+
+    private long runFrame() {
+        long start = System.nanoTime();
+
+        float centerX = world.avatar().getCenter().x();
+        float halfView = WINDOW_DIMENSIONS.x() * 0.5f;
+        world.streamChunks(centerX - halfView, centerX + halfView);
+
+        // keep the sprint going, the run costs more energy than fruits give back
+        world.avatar().increaseEnergy(Float.MAX_VALUE);
+        world.update(DELTA_TIME, centerX - halfView, centerX + halfView);
+        objects.update(DELTA_TIME);
+        if (!heightFieldGround) {
+            clampToGround();
+        }
+        sleepingUpdates += world.chunkWorld().sleepingObjectCount();
+        world.pickUpFruits();
+
+        frame++;
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Stands in for the engine's collisions with the top terrain blocks: puts an avatar that sank
+     * into the terrain back on top of it and stops its fall.
+     */
+    private void clampToGround() {
+        Avatar avatar = world.avatar();
+        float size = Avatar.getAvatarSize();
+        Vector2 topLeft = avatar.getTopLeftCorner();
+        float groundTop = Math.min(groundTopAt(topLeft.x()), groundTopAt(topLeft.x() + size - 1));
+        if (topLeft.y() + size > groundTop) {
+            avatar.setTopLeftCorner(new Vector2(topLeft.x(), groundTop - size));
+            if (avatar.getVelocity().y() > 0) {
+                avatar.transform().setVelocityY(0);
+            }
+        }
+    }
+
+    private float groundTopAt(float x) {
+        float column = (float) Math.floor(x / Block.SIZE) * Block.SIZE;
+        return (float) Math.floor(world.terrain().groundHeightAt(column) / Block.SIZE) * Block.SIZE;
+    }
+
+    private void report(long[] frameNanos, float startX) {
+        long[] sorted = frameNanos.clone();
+        Arrays.sort(sorted);
+        float traveled = world.avatar().getCenter().x() - startX;
+        TerrainBaker terrainBaker = world.terrainBaker();
+        DistantChunks distantChunks = world.distantChunks();
+
+        System.out.printf("frames: %d (%.0f simulated seconds)%n",
+                frameNanos.length, frameNanos.length * DELTA_TIME);
+        System.out.printf("traveled: %.0f px, %d chunks%n", traveled, (int) (traveled / PepseWorld.CHUNK_WIDTH));
+        System.out.printf("frame time: p50 %.3f ms, p99 %.3f ms, max %.3f ms%n",
+                percentileMillis(sorted, 0.50), percentileMillis(sorted, 0.99),
+                sorted[sorted.length - 1] / 1e6);
+        System.out.printf("fruits picked: %d%n", world.fruitsCollected());
+        System.out.printf("chunk cache: %d hits, %d misses%n", world.chunkWorld().cache().hits(),
+                world.chunkWorld().cache().misses());
+        if (terrainBaker != null) {
+            System.out.printf("terrain textures: %d hits, %d baked, %d KB cached%n",
+                    terrainBaker.hits(), terrainBaker.misses(), terrainBaker.bytes() >> 10);
+        }
+        if (distantChunks != null) {
+            System.out.printf("distant chunks at the end: %d in the middle ring, %d outlines%n",
+                    distantChunks.viewCount(), distantChunks.outlineCount());
+        }
+        System.out.printf("object updates: %d, %d of static objects (no-op)%n",
+                objects.updates, objects.staticUpdates);
+        System.out.printf("updates of other objects: %d, %d more skipped while their chunks slept"
+                        + " (%.1f%% fewer)%n",
+                objects.movingUpdates, sleepingUpdates,
+                100.0 * sleepingUpdates / Math.max(1, objects.movingUpdates + sleepingUpdates));
+        System.out.println("objects alive per layer (end / peak):");
+        for (Map.Entry<Integer, Set<GameObject>> entry : objects.layers.entrySet()) {
+            System.out.printf("  %5d: %6d / %6d%n", entry.getKey(), entry.getValue().size(),
+                    objects.peak.get(entry.getKey()));
+        }
+    }
+
+    private static double percentileMillis(long[] sorted, double percentile) {
+        int index = (int) Math.min(sorted.length - 1, Math.round(percentile * (sorted.length - 1)));
+        return sorted[index] / 1e6;
+    }
+
+    /**
+     * Runs the simulation.
+     *
+     * @param args optional number of frames and world seed, followed by the options.
+     * @throws IOException if the temporary directory for saved chunks can not be created.
+     */
+    public static void main(String[] args) throws IOException {
+        int frames = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_FRAMES;
+        int seed = args.length > 1 ? Integer.parseInt(args[1]) : PepseWorld.DEFAULT_SEED;
+        List<String> options = Arrays.asList(args).subList(Math.min(2, args.length), args.length);
+
+        boolean heightFieldGround = !options.contains("blockground");
+        HeadlessSimulator simulator = new HeadlessSimulator(seed, new PepseWorld.Options()
+                .bakedCanopies(!options.contains("leaves"))
+                .bakedTerrain(!options.contains("blocks"))
+                .levelOfDetail(!options.contains("nolod"))
+                .heightFieldGround(heightFieldGround), heightFieldGround);
+        float startX = simulator.world.avatar().getCenter().x();
+        long[] frameNanos = new long[frames];
+        for (int i = 0; i < frames; i++) {
+            frameNanos[i] = simulator.runFrame();
+        }
+        simulator.report(frameNanos, startX);
+        simulator.world.close();
+        simulator.store.close();
+    }
+}
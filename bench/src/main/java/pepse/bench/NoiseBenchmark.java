@@ -0,0 +1,108 @@
+package pepse.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pepse.utils.NoiseGenerator;
+import pepse.world.Block;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link NoiseGenerator} evaluation across octave counts.
+ *
+ * The generator evaluates one octave per halving of its start point, so a start point of
+ * 2^(octaves - 1) gives the requested number of octaves. {@code noise} is measured per sample,
+ * {@code noiseRange} per chunk of samples, which is how the terrain uses it.
+ *
+ * Before measuring, the setup checks that both {@code noiseRange} overloads return exactly the
+ * values of {@code noise}, bit for bit, and fails the benchmark otherwise.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NoiseBenchmark {
+    private static final double FACTOR = Block.SIZE * 10;
+
+    /**
+     * number of block columns on each side of x = 0 compared by {@link #checkNoiseRange()}
+     */
+    private static final int CHECKED_COLUMNS = 4096;
+
+    @Param({"1", "4", "8", "10"})
+    public int octaves;
+
+    @Param({"1234", "98765"})
+    public int seed;
+
+    @Param({"10", "32"})
+    public int chunkBlocks;
+
+    private NoiseGenerator noiseGenerator;
+    private double[] out;
+    private double x;
+
+    @Setup
+    public void setUp() {
+        noiseGenerator = new NoiseGenerator(seed, 1 << (octaves - 1));
+        out = new double[chunkBlocks + 1];
+        x = 0;
+        checkNoiseRange();
+    }
+
+    /**
+     * Compares both {@code noiseRange} overloads with {@code noise}, chunk by chunk, over columns
+     * on both sides of x = 0.
+     *
+     * @throws IllegalStateException if any value differs.
+     */
+    private void checkNoiseRange() {
+        double[] doubles = new double[chunkBlocks + 1];
+        float[] floats = new float[chunkBlocks + 1];
+        for (int column = -CHECKED_COLUMNS; column < CHECKED_COLUMNS; column += chunkBlocks) {
+            double startX = (double) column * Block.SIZE;
+            noiseGenerator.noiseRange(startX, Block.SIZE, FACTOR, doubles);
+            noiseGenerator.noiseRange(startX, Block.SIZE, FACTOR, floats);
+            for (int i = 0; i < doubles.length; i++) {
+                double sampleX = startX + i * Block.SIZE;
+                double expected = noiseGenerator.noise(sampleX, FACTOR);
+                if (Double.doubleToLongBits(doubles[i]) != Double.doubleToLongBits(expected)
+                        || Float.floatToIntBits(floats[i]) != Float.floatToIntBits((float) expected)) {
+                    throw new IllegalStateException("noiseRange differs from noise at x = "
+                            + sampleX + ": " + doubles[i] + ", " + floats[i] + " instead of "
+                            + expected);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the noise at the next block column.
+     */
+    @Benchmark
+    public double noise() {
+        x += Block.SIZE;
+        return noiseGenerator.noise(x, FACTOR);
+    }
+
+    /**
+     * @return the noise of the columns of the next chunk.
+     */
+    @Benchmark
+    public double[] noiseRange() {
+        x += (double) chunkBlocks * Block.SIZE;
+        noiseGenerator.noiseRange(x, Block.SIZE, FACTOR, out);
+        return out;
+    }
+}
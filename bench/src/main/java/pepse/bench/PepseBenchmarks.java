@@ -0,0 +1,38 @@
+package pepse.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the world generation benchmarks with the GC profiler, so every result also reports the
+ * allocation rate.
+ *
+ * Accepts the usual JMH command line, for example a regex selecting benchmarks or
+ * {@code -p chunkBlocks=10} to run a single parameter value.
+ */
+public class PepseBenchmarks {
+
+    /**
+     * Entry point of the benchmarks jar.
+     *
+     * @param args JMH command-line options.
+     * @throws RunnerException if a benchmark fails.
+     * @throws CommandLineOptionException if the options can not be parsed.
+     */
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        OptionsBuilder options = new OptionsBuilder();
+        options.parent(commandLine);
+        // a regex given on the command line replaces the default selection instead of adding to it
+        if (commandLine.getIncludes().isEmpty()) {
+            options.include(PepseBenchmarks.class.getPackageName() + ".*Benchmark");
+        }
+        new Runner(options
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
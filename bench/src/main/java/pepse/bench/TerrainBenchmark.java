@@ -0,0 +1,67 @@
+package pepse.bench;
+
+import danogl.util.Vector2;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pepse.world.Block;
+import pepse.world.Terrain;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Terrain#createInRange(int, int)} for one chunk at a time.
+ *
+ * Every invocation creates the next chunk to the right, so the height cache sees the same
+ * pattern as a player walking in one direction. The blocks are released to the terrain's pool
+ * afterwards, as the game does once the chunk is unloaded.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TerrainBenchmark {
+    private static final Vector2 WINDOW_DIMENSIONS = new Vector2(1280, 720);
+    private static final int HEIGHT_CACHE_CHUNKS = 32;
+
+    @Param({"1234", "98765"})
+    public int seed;
+
+    @Param({"10", "32"})
+    public int chunkBlocks;
+
+    private Terrain terrain;
+    private int chunkId;
+
+    @Setup
+    public void setUp() {
+        terrain = new Terrain(WINDOW_DIMENSIONS, seed,
+                new Terrain.Options().heightCache(chunkBlocks, HEIGHT_CACHE_CHUNKS));
+        chunkId = 0;
+    }
+
+    /**
+     * @return the number of blocks created for the next chunk.
+     */
+    @Benchmark
+    public int createChunk() {
+        int chunkWidth = chunkBlocks * Block.SIZE;
+        int startX = chunkId++ * chunkWidth;
+        List<Block> blocks = terrain.createInRange(startX, startX + chunkWidth);
+        for (Block block : blocks) {
+            terrain.recycle(block);
+        }
+        return blocks.size();
+    }
+}
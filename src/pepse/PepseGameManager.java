@@ -9,57 +9,109 @@ import danogl.gui.UserInputListener;
 import danogl.gui.WindowController;
 import danogl.gui.rendering.Camera;
 import danogl.util.Vector2;
-import pepse.world.Block;
-import pepse.world.Sky;
+import pepse.diagnostics.PepseMetrics;
+import pepse.utils.ObjectPool;
 import pepse.world.Terrain;
+import pepse.world.TerrainBaker;
 import pepse.world.avatar.Avatar;
-import pepse.world.daynight.Night;
-import pepse.world.daynight.Sun;
-import pepse.world.trees.Flora;
-import pepse.world.trees.FloraPack;
+import pepse.world.chunks.ChunkStore;
+import pepse.world.chunks.ChunkWorld;
+import pepse.world.chunks.ObjectSink;
 import pepse.world.ui.EnergyDisplay;
+import pepse.world.ui.PerformanceDisplay;
 
-import java.util.*;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 /**
  * The main game manager for the Pepse game
  *
- * This class extends the engine {@link GameManager} and is responsible for initializing the
- * world (sky, terrain, flora, day/night cycle, avatar, UI)
+ * This class extends the engine {@link GameManager} and is responsible for creating the
+ * {@link PepseWorld} (sky, terrain, flora, day/night cycle, avatar) in the engine's object
+ * collection, and the UI and camera around it
  */
 public class PepseGameManager extends GameManager {
 
-    private static final float CYCLE_LENGTH = 30f;
-    private static final int SEED = 1234;
+    /**
+     * directory generated chunks are saved in, one sub directory per world
+     */
+    private static final String SAVES_DIRECTORY = "saves";
 
-    private static final int CHUNK_BLOCKS = 10;
-    private static final int CHUNK_WIDTH = CHUNK_BLOCKS * Block.SIZE;
-    private static final int LOAD_RADIUS_CHUNKS = 3;
-    private static final int UNLOAD_EXTRA_CHUNKS = 2;
+    /**
+     * how long the shutdown hook waits for the game thread to save the loaded chunks
+     */
+    private static final long SAVE_ON_EXIT_TIMEOUT_SECONDS = 2;
 
-    private Terrain terrain;
-    private Flora flora;
-    private Avatar avatar;
-    private Vector2 windowDimensions;
+    private PepseWorld world;
+    private PerformanceDisplay performanceDisplay;
 
-    private final Map<Integer, List<LayeredObject>> loadedChunks = new HashMap<>();
+    /**
+     * set by the shutdown hook, the game thread then saves the world on its next update
+     */
+    private volatile boolean exiting = false;
+    private final CountDownLatch worldSaved = new CountDownLatch(1);
 
     /**
-     * helper pairing a {@link GameObject} with its layer
+     * adds and removes objects in the game, counting them for the performance display and the
+     * JMX metrics
      */
-    private static class LayeredObject {
-        final GameObject obj;
-        final int layer;
+    private final ObjectSink objectSink = new ObjectSink() {
+        @Override
+        public void add(GameObject obj, int layer) {
+            gameObjects().addGameObject(obj, layer);
+            performanceDisplay.objectAdded(layer);
+            PepseMetrics.get().objectAdded(obj);
+        }
 
-        LayeredObject(GameObject obj, int layer) {
-            this.obj = obj;
-            this.layer = layer;
+        @Override
+        public void remove(GameObject obj, int layer) {
+            gameObjects().removeGameObject(obj, layer);
+            performanceDisplay.objectRemoved(layer);
+            PepseMetrics.get().objectRemoved(obj);
         }
-    }
+
+        // a sleeping object still counts as in the world, only the engine stops updating it
+        @Override
+        public void sleep(GameObject obj, int layer) {
+            gameObjects().removeGameObject(obj, layer);
+        }
+
+        @Override
+        public void wake(GameObject obj, int layer) {
+            gameObjects().addGameObject(obj, layer);
+        }
+
+        @Override
+        public void removeAsleep(GameObject obj, int layer) {
+            performanceDisplay.objectRemoved(layer);
+            PepseMetrics.get().objectRemoved(obj);
+        }
+    };
+
+    /**
+     * adds and removes the objects of distant chunks, they are only counted for the performance
+     * display
+     */
+    private final ObjectSink distantSink = new ObjectSink() {
+        @Override
+        public void add(GameObject obj, int layer) {
+            gameObjects().addGameObject(obj, layer);
+            performanceDisplay.objectAdded(layer);
+        }
+
+        @Override
+        public void remove(GameObject obj, int layer) {
+            gameObjects().removeGameObject(obj, layer);
+            performanceDisplay.objectRemoved(layer);
+        }
+    };
 
     /**
      * Initialize the game, this method is called by the engine when the game starts.
-     * It register the sky, terrain, flora, day/night objects, avatar, UI and camera.
+     * It creates the world, the UI and the camera.
      *
      * @param imageReader Reader for load images.
      * @param soundReader Reader for load sounds.
@@ -72,156 +124,129 @@ public class PepseGameManager extends GameManager {
             SoundReader soundReader, UserInputListener inputListener,
             WindowController windowController) {
         super.initializeGame(imageReader, soundReader, inputListener, windowController);
-        windowDimensions = windowController.getWindowDimensions();
-
-        GameObject sky = Sky.create(windowDimensions);
-        gameObjects().addGameObject(sky, Layer.BACKGROUND);
-
-        terrain = new Terrain(windowDimensions, SEED);
-        flora = new Flora(terrain::groundHeightAt, SEED, this::onFruitCollected);
-
-        GameObject night = Night.create(windowController.getWindowDimensions(), CYCLE_LENGTH);
-        gameObjects().addGameObject(night, Layer.FOREGROUND);
-
-        GameObject sun = Sun.create(windowController.getWindowDimensions(), CYCLE_LENGTH);
-        gameObjects().addGameObject(sun, Layer.BACKGROUND);
-
-        GameObject sunHalo = pepse.world.daynight.SunHalo.create(sun);
-        gameObjects().addGameObject(sunHalo, Layer.BACKGROUND);
-
-        float initialX = windowDimensions.x() * 0.5f;
-        float groundY = terrain.groundHeightAt(initialX);
-        groundY = (float) (Math.floor(groundY / Block.SIZE) * Block.SIZE);
-        Vector2 initialAvatarLocation = new Vector2(initialX, groundY - Avatar.getAvatarSize());
-
-        avatar = new Avatar(initialAvatarLocation, inputListener, imageReader);
-        gameObjects().addGameObject(avatar, Layer.DEFAULT);
+        Vector2 windowDimensions = windowController.getWindowDimensions();
+
+        performanceDisplay = new PerformanceDisplay(inputListener::isKeyPressed,
+                new int[]{Layer.STATIC_OBJECTS, PepseWorld.TERRAIN_FILL_LAYER,
+                        PepseWorld.FOLIAGE_LAYER, Layer.DEFAULT, Layer.FOREGROUND},
+                new String[]{"static", "fill", "foliage", "default", "foreground"});
+        objectSink.add(performanceDisplay, Layer.UI);
+        applyCollisionPolicy();
+
+        // the terrain depends on the window height, so each height gets its own saved world
+        ChunkStore chunkStore = new ChunkStore(Paths.get(SAVES_DIRECTORY,
+                "seed" + PepseWorld.DEFAULT_SEED + "_h" + (int) windowDimensions.y()));
+        world = new PepseWorld(windowDimensions, PepseWorld.DEFAULT_SEED, chunkStore, objectSink,
+                distantSink, inputListener::isKeyPressed,
+                path -> imageReader.readImage(path, true), new PepseWorld.Options());
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            // the chunks belong to the game thread, so it saves them and the hook only waits.
+            // if it is not done in time, the closed store drops what it saves later
+            exiting = true;
+            try {
+                worldSaved.await(SAVE_ON_EXIT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            chunkStore.close();
+        }));
+        registerMetrics();
 
+        Avatar avatar = world.avatar();
         EnergyDisplay energyDisplay = new EnergyDisplay();
-        gameObjects().addGameObject(energyDisplay, Layer.FOREGROUND);
+        objectSink.add(energyDisplay, Layer.FOREGROUND);
 
         avatar.addEnergyChangedListener(energyDisplay::updateEnergy);
 
-        Vector2 cameraOffset = windowDimensions.mult(0.5f).subtract(initialAvatarLocation);
+        Vector2 cameraOffset = windowDimensions.mult(0.5f).subtract(avatar.getTopLeftCorner());
         setCamera(new Camera(
                 avatar,
                 cameraOffset,
                 windowDimensions,
                 windowDimensions
         ));
-
-        ensureChunksAround(avatar.getCenter().x());
-
     }
 
     /**
-     * Update called by the engine every frame. Ensures chunks around the avatar are loaded and
-     * then delegates to the super.
+     * Update called by the engine every frame. Ensures chunks around the avatar are loaded,
+     * reports the time that took to the performance display, updates the world, delegates to the
+     * super and finally lets the avatar pick up the fruits it reached.
      *
      * @param deltaTime Time elapsed (in seconds) since the last frame
      */
     @Override
     public void update(float deltaTime) {
-        ensureChunksAround(avatar.getCenter().x());
+        if (exiting) {
+            saveWorld();
+            return;
+        }
+        float viewMinX = camera().getTopLeftCorner().x();
+        float viewMaxX = viewMinX + camera().getDimensions().x();
+        long start = System.nanoTime();
+        world.streamChunks(viewMinX, viewMaxX);
+        performanceDisplay.recordChunkUpdate(System.nanoTime() - start,
+                world.chunkWorld().loadedChunkCount(), world.chunkWorld().cache().size());
+        world.update(deltaTime, viewMinX, viewMaxX);
         super.update(deltaTime);
+        world.pickUpFruits();
     }
 
     /**
-     * Ensures that all chunks within the configured load radius around the given center x are
-     * loaded. Chunks outside an extended unload radius are removed.
-     *
-     * @param centerX X-coordinate (in pixels) around which to ensure chunks are present
+     * The layers that only draw take no part in collision detection: the terrain fill and the
+     * foliage do not collide with any layer, themselves included.
      */
-    private void ensureChunksAround(float centerX) {
-        int centerChunk = Math.floorDiv((int) Math.floor(centerX), CHUNK_WIDTH);
-        int minChunk = centerChunk - LOAD_RADIUS_CHUNKS;
-        int maxChunk = centerChunk + LOAD_RADIUS_CHUNKS;
-
-        for (int chunkId = minChunk; chunkId <= maxChunk; chunkId++) {
-            if (!loadedChunks.containsKey(chunkId)) {
-                loadChunk(chunkId);
+    private void applyCollisionPolicy() {
+        int[] drawOnly = {PepseWorld.TERRAIN_FILL_LAYER, PepseWorld.FOLIAGE_LAYER};
+        int[] all = {Layer.BACKGROUND, Layer.STATIC_OBJECTS, PepseWorld.TERRAIN_FILL_LAYER,
+                PepseWorld.FOLIAGE_LAYER, Layer.DEFAULT, Layer.FOREGROUND, Layer.UI};
+        for (int layer : drawOnly) {
+            for (int other : all) {
+                gameObjects().layers().shouldLayersCollide(layer, other, false);
             }
         }
-
-        // unload far chunks
-        int unloadMin = minChunk - UNLOAD_EXTRA_CHUNKS;
-        int unloadMax = maxChunk + UNLOAD_EXTRA_CHUNKS;
-
-        Iterator<Map.Entry<Integer, List<LayeredObject>>> it = loadedChunks.entrySet().iterator();
-        while (it.hasNext()) {
-            var entry = it.next();
-            int chunkId = entry.getKey();
-            if (chunkId < unloadMin || chunkId > unloadMax) {
-                unloadChunk(entry.getValue());
-                it.remove();
-            }
-        }
-    }
-
-    /**
-     * Load a single chunk,  will create terrain blocks and flora objects for the
-     * horizontal span of the chunk and add them to the appropriate layers.
-     *
-     * @param chunkId The integer id of the chunk to load
-     */
-    private void loadChunk(int chunkId) {
-        int startX = chunkId * CHUNK_WIDTH;
-        int endX = startX + CHUNK_WIDTH;
-
-        List<LayeredObject> created = new ArrayList<>();
-
-        for (Block block : terrain.createInRange(startX, endX)) {
-            gameObjects().addGameObject(block, Layer.STATIC_OBJECTS);
-            created.add(new LayeredObject(block, Layer.STATIC_OBJECTS));
-        }
-
-        FloraPack pack = flora.createInRange(startX, endX);
-
-        for (GameObject trunk : pack.getTrunks()) {
-            gameObjects().addGameObject(trunk, Layer.STATIC_OBJECTS);
-            created.add(new LayeredObject(trunk, Layer.STATIC_OBJECTS));
-        }
-        for (GameObject leaf : pack.getLeaves()) {
-            gameObjects().addGameObject(leaf, Layer.DEFAULT);
-            created.add(new LayeredObject(leaf, Layer.DEFAULT));
-        }
-        for (GameObject fruit : pack.getFruits()) {
-            gameObjects().addGameObject(fruit, Layer.DEFAULT);
-            created.add(new LayeredObject(fruit, Layer.DEFAULT));
-        }
-
-        loadedChunks.put(chunkId, created);
     }
 
     /**
-     * Removes all game objects in the provided list from their layers.
-     *
-     * @param objects list of {@link LayeredObject} to remove from the engine.
+     * Registers the JMX metrics and points them at the caches and pools of the world. Those are
+     * read from the JMX thread without locking, so the values shown may be slightly stale.
      */
-    private void unloadChunk(List<LayeredObject> objects) {
-        for (LayeredObject lo : objects) {
-            gameObjects().removeGameObject(lo.obj, lo.layer);
+    private void registerMetrics() {
+        PepseMetrics metrics = PepseMetrics.get();
+        ChunkWorld chunkWorld = world.chunkWorld();
+        Terrain terrain = world.terrain();
+        TerrainBaker terrainBaker = world.terrainBaker();
+        metrics.watchChunkCache(chunkWorld.cache()::hits, chunkWorld.cache()::misses);
+        metrics.watchHeightCache(terrain::getHeightCacheHits, terrain::getHeightCacheMisses);
+        if (terrainBaker != null) {
+            metrics.watchTerrainTextures(terrainBaker::hits, terrainBaker::misses,
+                    terrainBaker::bytes);
         }
+        metrics.watchPools(() -> {
+            List<ObjectPool<?>> pools = new ArrayList<>(world.flora().pools());
+            pools.add(0, terrain.blockPool());
+            return pools;
+        });
+        metrics.register();
     }
 
     /**
-     * Called by fruit when collected to apply the energy bonus to the avatar.
-     *
-     * @param energyBonus amount of energy to add to the avatar.
+     * Saves the state of the chunks still in memory, once. Called on the game thread, either when
+     * the game loop ends or on the first update after the shutdown hook asked for it.
      */
-    private void onFruitCollected(float energyBonus) {
-        if (avatar != null) {
-            avatar.increaseEnergy(energyBonus);
-        }
+    private void saveWorld() {
+        if (worldSaved.getCount() == 0 || world == null) return;
+        world.close();
+        worldSaved.countDown();
     }
 
-
     /**
      * Main entry point used to start the game
      *
      * @param args command-line arguments.
      */
     public static void main(String[] args) {
-        new PepseGameManager().run();
+        PepseGameManager game = new PepseGameManager();
+        game.run();
+        game.saveWorld();
     }
 }
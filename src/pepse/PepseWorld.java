@@ -0,0 +1,375 @@
+package pepse;
+
+import danogl.GameObject;
+import danogl.collisions.Layer;
+import danogl.gui.rendering.Renderable;
+import danogl.util.Vector2;
+import pepse.utils.TimingWheel;
+import pepse.world.Block;
+import pepse.world.Sky;
+import pepse.world.Terrain;
+import pepse.world.TerrainBaker;
+import pepse.world.TriggerGrid;
+import pepse.world.avatar.Avatar;
+import pepse.world.avatar.GroundSolver;
+import pepse.world.chunks.ChunkBuilder;
+import pepse.world.chunks.ChunkStore;
+import pepse.world.chunks.ChunkWorld;
+import pepse.world.chunks.DistantChunks;
+import pepse.world.chunks.ObjectSink;
+import pepse.world.daynight.Night;
+import pepse.world.daynight.Sun;
+import pepse.world.daynight.SunHalo;
+import pepse.world.trees.Canopy;
+import pepse.world.trees.Flora;
+import pepse.world.trees.Fruit;
+import pepse.world.trees.Leaf;
+import pepse.world.trees.WindField;
+
+import java.util.function.Function;
+import java.util.function.IntPredicate;
+
+/**
+ * The world of the game: the sky, the day/night cycle, the streamed terrain and flora and the
+ * avatar, with everything that moves them every frame.
+ *
+ * The world does not know the engine's object collection, it adds and removes objects through
+ * the {@link ObjectSink}s it is given, so the same world runs in the game and without a window
+ * in the headless simulator. The camera and the UI belong to the game.
+ */
+public class PepseWorld {
+
+    /**
+     * the seed of the game's world
+     */
+    public static final int DEFAULT_SEED = 1234;
+
+    private static final float CYCLE_LENGTH = 30f;
+
+    private static final int CHUNK_BLOCKS = 10;
+
+    /**
+     * width of a chunk in pixels
+     */
+    public static final int CHUNK_WIDTH = CHUNK_BLOCKS * Block.SIZE;
+    private static final int LOAD_RADIUS_CHUNKS = 3;
+    private static final int UNLOAD_EXTRA_CHUNKS = 2;
+
+    /**
+     * how far {@link DistantChunks} shows the world beyond the loaded chunks: baked terrain and
+     * tree silhouettes in the middle ring, only the terrain's outline in the outer ring. the outer
+     * ring is widened to reach past the edges of the camera, so the loaded chunks no longer depend
+     * on the window width.
+     */
+    private static final int MIDDLE_RING_CHUNKS = 4;
+    private static final int OUTER_RING_CHUNKS = 8;
+
+    /**
+     * when true, only the top terrain blocks collide and the blocks below them share merged
+     * colliders. the buried blocks are then drawn in {@link #TERRAIN_FILL_LAYER}, which does not
+     * collide with anything.
+     */
+    private static final boolean MERGE_BURIED_COLLIDERS = true;
+
+    /**
+     * the layer of the terrain that is only drawn, it takes no part in collision detection
+     */
+    public static final int TERRAIN_FILL_LAYER = Layer.STATIC_OBJECTS - 1;
+
+    /**
+     * the baked terrain images are cached up to this many bytes
+     */
+    private static final long TERRAIN_TEXTURE_CACHE_BYTES = 32L << 20;
+
+    /**
+     * the layer of leaves and fruits, drawn behind the avatar. nothing collides with it, fruits
+     * are picked up through {@link TriggerGrid} instead
+     */
+    public static final int FOLIAGE_LAYER = Layer.DEFAULT - 1;
+
+    /**
+     * resolution and size of the timing wheel running delayed tasks such as fruit respawns
+     */
+    private static final float TIMER_TICK_SECONDS = 0.1f;
+    private static final int TIMER_SLOTS = 64;
+
+    /**
+     * How the world is drawn and how the avatar stands on it. The defaults are the game's, the
+     * headless simulator turns them off to compare.
+     */
+    public static class Options {
+        private boolean levelOfDetail = true;
+        private boolean bakedTerrain = true;
+        private boolean bakedCanopies = true;
+        private boolean heightFieldGround = true;
+
+        /**
+         * @param enabled when true, the chunks beyond the loaded ones are shown in less detail by
+         *                {@link DistantChunks}. when false, nothing is shown beyond the loaded
+         *                chunks, and those reach past the edges of the camera instead.
+         * @return these options
+         */
+        public Options levelOfDetail(boolean enabled) {
+            this.levelOfDetail = enabled;
+            return this;
+        }
+
+        /**
+         * @param enabled when true, the terrain of each chunk is drawn from one image baked by a
+         *                {@link TerrainBaker} while the chunk is built, instead of one object per
+         *                block.
+         * @return these options
+         */
+        public Options bakedTerrain(boolean enabled) {
+            this.bakedTerrain = enabled;
+            return this;
+        }
+
+        /**
+         * @param enabled when true, the leaves of each tree are baked into a single
+         *                {@link Canopy} that sways as a whole. when false, every leaf is its own
+         *                object and moves on its own.
+         * @return these options
+         */
+        public Options bakedCanopies(boolean enabled) {
+            this.bakedCanopies = enabled;
+            return this;
+        }
+
+        /**
+         * @param enabled when true, the avatar stands on the terrain's height field through a
+         *                {@link GroundSolver} and all terrain blocks are drawn in
+         *                {@link #TERRAIN_FILL_LAYER}, so the engine never checks the avatar
+         *                against them, and no invisible terrain colliders are created. when
+         *                false, the top blocks collide with the avatar.
+         * @return these options
+         */
+        public Options heightFieldGround(boolean enabled) {
+            this.heightFieldGround = enabled;
+            return this;
+        }
+    }
+
+    private final Terrain terrain;
+    private final TerrainBaker terrainBaker;
+    private final Flora flora;
+    private final ChunkWorld chunkWorld;
+    private final DistantChunks distantChunks;
+    private final Avatar avatar;
+    private final WindField windField = new WindField();
+    private final TimingWheel timers = new TimingWheel(TIMER_TICK_SECONDS, TIMER_SLOTS);
+    private final TriggerGrid triggers = new TriggerGrid();
+    private int fruitsCollected = 0;
+
+    /**
+     * hands leaves and canopies to the wind field and fruits to the timers and triggers on their
+     * way in and out of the game. objects put to sleep only leave the engine's update set, so a
+     * sleeping fruit's respawn timer keeps running
+     */
+    private final ObjectSink worldSink;
+
+    /**
+     * Creates the world and adds the sky, the day/night objects, the avatar and the chunks
+     * around it.
+     *
+     * @param windowDimensions the window dimensions in pixels.
+     * @param seed used for deterministic terrain and flora.
+     * @param store where chunks are saved when they are unloaded and loaded from later. closed
+     *              by the caller.
+     * @param objects adds and removes objects in the game.
+     * @param distantObjects adds and removes the objects of distant chunks, which only stand
+     *                       still.
+     * @param keyPressed tells whether a key is pressed, read by the avatar.
+     * @param frameLoader loads the avatar's animation frames given their path.
+     * @param options how the world is drawn.
+     */
+    public PepseWorld(Vector2 windowDimensions, int seed, ChunkStore store, ObjectSink objects,
+                      ObjectSink distantObjects, IntPredicate keyPressed,
+                      Function<String, Renderable> frameLoader, Options options) {
+        this.worldSink = new ObjectSink() {
+            @Override
+            public void add(GameObject obj, int layer) {
+                objects.add(obj, layer);
+                if (obj instanceof Leaf) {
+                    windField.add((Leaf) obj);
+                } else if (obj instanceof Canopy) {
+                    windField.add((Canopy) obj);
+                } else if (obj instanceof Fruit) {
+                    ((Fruit) obj).enterGame(timers);
+                    triggers.add((Fruit) obj);
+                }
+            }
+
+            @Override
+            public void remove(GameObject obj, int layer) {
+                objects.remove(obj, layer);
+                leaveWorld(obj);
+            }
+
+            @Override
+            public void sleep(GameObject obj, int layer) {
+                objects.sleep(obj, layer);
+            }
+
+            @Override
+            public void wake(GameObject obj, int layer) {
+                objects.wake(obj, layer);
+            }
+
+            @Override
+            public void removeAsleep(GameObject obj, int layer) {
+                objects.removeAsleep(obj, layer);
+                leaveWorld(obj);
+            }
+        };
+
+        // the loaded area, or the outer ring around it, must always reach past the edges of the
+        // camera
+        int halfViewChunks = (int) Math.ceil(windowDimensions.x() * 0.5f / CHUNK_WIDTH);
+        int loadRadiusChunks = options.levelOfDetail
+                ? LOAD_RADIUS_CHUNKS : Math.max(LOAD_RADIUS_CHUNKS, halfViewChunks + 1);
+        int outerRingChunks = Math.max(OUTER_RING_CHUNKS,
+                halfViewChunks + 1 - loadRadiusChunks - UNLOAD_EXTRA_CHUNKS - MIDDLE_RING_CHUNKS);
+
+        // keep the heights of about twice the area that is loaded at once
+        int heightCacheChunks = 2 * (2 * (loadRadiusChunks + UNLOAD_EXTRA_CHUNKS) + 1);
+        terrainBaker = options.bakedTerrain ? new TerrainBaker(TERRAIN_TEXTURE_CACHE_BYTES) : null;
+        terrain = new Terrain(windowDimensions, seed, new Terrain.Options()
+                .heightCache(CHUNK_BLOCKS, heightCacheChunks)
+                .mergeBuriedColliders(MERGE_BURIED_COLLIDERS)
+                .baker(terrainBaker)
+                .invisibleColliders(!options.heightFieldGround));
+        flora = new Flora(terrain::groundHeightAt, seed, this::onFruitCollected,
+                options.bakedCanopies);
+        int terrainColliderLayer =
+                options.heightFieldGround ? TERRAIN_FILL_LAYER : Layer.STATIC_OBJECTS;
+        ChunkBuilder chunkBuilder = new ChunkBuilder(terrain, flora, CHUNK_BLOCKS,
+                terrainColliderLayer, TERRAIN_FILL_LAYER, FOLIAGE_LAYER);
+        distantChunks = options.levelOfDetail ? new DistantChunks(chunkBuilder, store,
+                distantObjects, MIDDLE_RING_CHUNKS, outerRingChunks) : null;
+        chunkWorld = new ChunkWorld(chunkBuilder, store, worldSink, CHUNK_WIDTH,
+                loadRadiusChunks, UNLOAD_EXTRA_CHUNKS, distantChunks);
+
+        objects.add(Sky.create(windowDimensions), Layer.BACKGROUND);
+        objects.add(Night.create(windowDimensions, CYCLE_LENGTH), Layer.FOREGROUND);
+        GameObject sun = Sun.create(windowDimensions, CYCLE_LENGTH);
+        objects.add(sun, Layer.BACKGROUND);
+        objects.add(SunHalo.create(sun), Layer.BACKGROUND);
+
+        float initialX = windowDimensions.x() * 0.5f;
+        float groundY = terrain.groundHeightAt(initialX);
+        groundY = (float) (Math.floor(groundY / Block.SIZE) * Block.SIZE);
+        avatar = new Avatar(new Vector2(initialX, groundY - Avatar.getAvatarSize()),
+                keyPressed, frameLoader);
+        if (options.heightFieldGround) {
+            avatar.setGroundSolver(new GroundSolver(terrain::groundHeightAt));
+        }
+        objects.add(avatar, Layer.DEFAULT);
+
+        float halfView = windowDimensions.x() * 0.5f;
+        chunkWorld.ensureChunksAround(initialX, 0f, initialX - halfView, initialX + halfView);
+    }
+
+    /**
+     * Loads and unloads chunks around the avatar. Called once per frame, before
+     * {@link #update}.
+     *
+     * @param viewMinX left edge of the camera, in world coordinates.
+     * @param viewMaxX right edge of the camera, in world coordinates.
+     */
+    public void streamChunks(float viewMinX, float viewMaxX) {
+        chunkWorld.ensureChunksAround(avatar.getCenter().x(), avatar.getVelocity().x(),
+                viewMinX, viewMaxX);
+    }
+
+    /**
+     * Runs due timers and moves the visible leaves in the wind. Called once per frame, before the
+     * objects themselves are updated.
+     *
+     * @param deltaTime Time elapsed (in seconds) since the last frame
+     * @param viewMinX left edge of the camera, in world coordinates.
+     * @param viewMaxX right edge of the camera, in world coordinates.
+     */
+    public void update(float deltaTime, float viewMinX, float viewMaxX) {
+        timers.advance(deltaTime);
+        windField.update(deltaTime, viewMinX, viewMaxX);
+    }
+
+    /**
+     * Lets the avatar pick up the fruits it reached. Called once per frame, after the objects
+     * were updated.
+     */
+    public void pickUpFruits() {
+        triggers.update(avatar);
+    }
+
+    /**
+     * Saves the state of the chunks still in memory. Called on the game thread.
+     */
+    public void close() {
+        chunkWorld.close();
+    }
+
+    /**
+     * @return the avatar.
+     */
+    public Avatar avatar() { return avatar; }
+
+    /**
+     * @return the terrain generator.
+     */
+    public Terrain terrain() { return terrain; }
+
+    /**
+     * @return the baker of the terrain's textures, or null if the terrain is made of blocks.
+     */
+    public TerrainBaker terrainBaker() { return terrainBaker; }
+
+    /**
+     * @return the flora generator.
+     */
+    public Flora flora() { return flora; }
+
+    /**
+     * @return the loaded chunks.
+     */
+    public ChunkWorld chunkWorld() { return chunkWorld; }
+
+    /**
+     * @return the chunks shown in less detail, or null without level of detail.
+     */
+    public DistantChunks distantChunks() { return distantChunks; }
+
+    /**
+     * @return the number of fruits the avatar picked up.
+     */
+    public int fruitsCollected() { return fruitsCollected; }
+
+    /**
+     * Stops moving an object of an unloaded chunk in the wind and stops its timers and triggers.
+     *
+     * @param obj the object that left the world.
+     */
+    private void leaveWorld(GameObject obj) {
+        if (obj instanceof Leaf) {
+            windField.remove((Leaf) obj);
+        } else if (obj instanceof Canopy) {
+            windField.remove((Canopy) obj);
+        } else if (obj instanceof Fruit) {
+            ((Fruit) obj).leaveGame();
+            triggers.remove((Fruit) obj);
+        }
+    }
+
+    /**
+     * Called by fruit when collected to apply the energy bonus to the avatar.
+     *
+     * @param energyBonus amount of energy to add to the avatar.
+     */
+    private void onFruitCollected(float energyBonus) {
+        fruitsCollected++;
+        if (avatar != null) {
+            avatar.increaseEnergy(energyBonus);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package pepse.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event: the avatar switching between the idle, run and jump states.
+ */
+@Name("pepse.AvatarState")
+@Label("Avatar State")
+@Category({"Pepse", "Gameplay"})
+@Description("The avatar switching between the idle, run and jump states.")
+public class AvatarStateEvent extends Event {
+    /**
+     * the state the avatar left.
+     */
+    @Label("From")
+    public String from;
+
+    /**
+     * the state the avatar entered.
+     */
+    @Label("To")
+    public String to;
+
+    /**
+     * the energy of the avatar.
+     */
+    @Label("Energy")
+    public float energy;
+}
@@ -0,0 +1,34 @@
+package pepse.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event: creating the objects of a chunk, from its saved data or from newly generated data.
+ */
+@Name("pepse.ChunkGenerate")
+@Label("Chunk Generate")
+@Category({"Pepse", "Chunks"})
+@Description("Creating the objects of a chunk, from its saved data or from newly generated data.")
+public class ChunkGenerateEvent extends Event {
+    /**
+     * the id of the chunk.
+     */
+    @Label("Chunk Id")
+    public int chunkId;
+
+    /**
+     * true if the chunk data was read from the saved world.
+     */
+    @Label("From Store")
+    public boolean fromStore;
+
+    /**
+     * the number of objects created.
+     */
+    @Label("Object Count")
+    public int objectCount;
+}
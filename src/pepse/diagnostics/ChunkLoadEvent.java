@@ -0,0 +1,44 @@
+package pepse.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event: a chunk entering the game, from the start of the attach until all its objects are
+ * in the game. The objects are added over several frames, the time actually spent adding them is
+ * recorded separately.
+ */
+@Name("pepse.ChunkLoad")
+@Label("Chunk Load")
+@Category({"Pepse", "Chunks"})
+@Description("A chunk entering the game, until all its objects were added over the frames.")
+public class ChunkLoadEvent extends Event {
+    /**
+     * the id of the chunk.
+     */
+    @Label("Chunk Id")
+    public int chunkId;
+
+    /**
+     * where the chunk came from: generated, cache or resumed.
+     */
+    @Label("Source")
+    public String source;
+
+    /**
+     * the number of objects of the chunk.
+     */
+    @Label("Object Count")
+    public int objectCount;
+
+    /**
+     * the time spent adding the chunk's objects to the game, summed over the frames.
+     */
+    @Label("Attach Time")
+    @Timespan(Timespan.NANOSECONDS)
+    public long attachTime;
+}
@@ -0,0 +1,28 @@
+package pepse.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event: a chunk leaving the game. Its objects are removed over the next frames.
+ */
+@Name("pepse.ChunkUnload")
+@Label("Chunk Unload")
+@Category({"Pepse", "Chunks"})
+@Description("A chunk leaving the game. Its objects are removed over the next frames.")
+public class ChunkUnloadEvent extends Event {
+    /**
+     * the id of the chunk.
+     */
+    @Label("Chunk Id")
+    public int chunkId;
+
+    /**
+     * the number of objects of the chunk.
+     */
+    @Label("Object Count")
+    public int objectCount;
+}
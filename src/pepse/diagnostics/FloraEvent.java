@@ -0,0 +1,46 @@
+package pepse.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event: generating flora data for a range of columns, or creating the flora objects from it.
+ */
+@Name("pepse.Flora")
+@Label("Flora")
+@Category({"Pepse", "Generation"})
+@Description("Generating flora data for a range of columns, or creating the flora objects from it.")
+public class FloraEvent extends Event {
+    /**
+     * generate, build or silhouette.
+     */
+    @Label("Phase")
+    public String phase;
+
+    /**
+     * index of the first block column.
+     */
+    @Label("First Column")
+    public int firstColumn;
+
+    /**
+     * the number of block columns.
+     */
+    @Label("Column Count")
+    public int columnCount;
+
+    /**
+     * the number of trees.
+     */
+    @Label("Tree Count")
+    public int treeCount;
+
+    /**
+     * the number of objects created, 0 when generating.
+     */
+    @Label("Object Count")
+    public int objectCount;
+}
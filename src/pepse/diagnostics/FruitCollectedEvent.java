@@ -0,0 +1,28 @@
+package pepse.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event: a fruit picked up by the avatar, including the energy callback.
+ */
+@Name("pepse.FruitCollected")
+@Label("Fruit Collected")
+@Category({"Pepse", "Gameplay"})
+@Description("A fruit picked up by the avatar, including the energy callback.")
+public class FruitCollectedEvent extends Event {
+    /**
+     * the x coordinate of the fruit.
+     */
+    @Label("X")
+    public float x;
+
+    /**
+     * the y coordinate of the fruit.
+     */
+    @Label("Y")
+    public float y;
+}
@@ -0,0 +1,308 @@
+package pepse.diagnostics;
+
+import pepse.utils.ObjectPool;
+import pepse.world.Block;
+import pepse.world.trees.Canopy;
+import pepse.world.trees.Fruit;
+import pepse.world.trees.Leaf;
+import pepse.world.trees.Trunk;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Counters describing the world while the game runs, exposed over JMX as "pepse:type=Metrics".
+ *
+ * Counters are {@link LongAdder}s, so recording from the game thread and the chunk workers at the
+ * same time does not contend. Statistics the world keeps itself (caches, pools) are read through
+ * suppliers only when a JMX client asks for them.
+ */
+public class PepseMetrics implements PepseMetricsMBean {
+    private static final String OBJECT_NAME = "pepse:type=Metrics";
+
+    /**
+     * upper bounds of the generation time histogram buckets, in milliseconds. the last bucket
+     * holds everything slower.
+     */
+    private static final double[] GENERATION_BUCKET_MILLIS = {0.5, 1, 2, 4, 8, 16, 32, 64};
+
+    private static final PepseMetrics INSTANCE = new PepseMetrics();
+
+    private final LongAdder loadedChunks = new LongAdder();
+    private final LongAdder chunksGenerated = new LongAdder();
+    private final LongAdder chunksReadFromStore = new LongAdder();
+    private final LongAdder chunksUnloaded = new LongAdder();
+    private final LongAdder generationNanos = new LongAdder();
+    private final LongAdder[] generationHistogram = new LongAdder[GENERATION_BUCKET_MILLIS.length + 1];
+
+    private final LongAdder liveBlocks = new LongAdder();
+    private final LongAdder liveTrunks = new LongAdder();
+    private final LongAdder liveLeaves = new LongAdder();
+    private final LongAdder liveCanopies = new LongAdder();
+    private final LongAdder liveFruits = new LongAdder();
+
+    private final LongAdder fruitPickups = new LongAdder();
+    private final LongAdder energyListenerDispatches = new LongAdder();
+
+    private volatile LongSupplier chunkCacheHits = () -> 0;
+    private volatile LongSupplier chunkCacheMisses = () -> 0;
+    private volatile LongSupplier heightCacheHits = () -> 0;
+    private volatile LongSupplier heightCacheMisses = () -> 0;
+    private volatile LongSupplier terrainTextureHits = () -> 0;
+    private volatile LongSupplier terrainTextureMisses = () -> 0;
+    private volatile LongSupplier terrainTextureBytes = () -> 0;
+    private volatile Supplier<List<ObjectPool<?>>> pools = List::of;
+
+    private PepseMetrics() {
+        for (int i = 0; i < generationHistogram.length; i++) {
+            generationHistogram[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * @return the metrics of this process
+     */
+    public static PepseMetrics get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Registers the metrics with the platform MBean server. Does nothing if they are already
+     * registered.
+     */
+    public void register() {
+        try {
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!ManagementFactory.getPlatformMBeanServer().isRegistered(name)) {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+            }
+        } catch (JMException e) {
+            // the game runs the same without metrics
+        }
+    }
+
+    /**
+     * Sets where the chunk cache statistics are read from.
+     *
+     * @param hits supplies the number of cache hits.
+     * @param misses supplies the number of cache misses.
+     */
+    public void watchChunkCache(LongSupplier hits, LongSupplier misses) {
+        chunkCacheHits = hits;
+        chunkCacheMisses = misses;
+    }
+
+    /**
+     * Sets where the height cache statistics are read from.
+     *
+     * @param hits supplies the number of cache hits.
+     * @param misses supplies the number of cache misses.
+     */
+    public void watchHeightCache(LongSupplier hits, LongSupplier misses) {
+        heightCacheHits = hits;
+        heightCacheMisses = misses;
+    }
+
+    /**
+     * Sets where the terrain texture cache statistics are read from.
+     *
+     * @param hits supplies the number of cache hits.
+     * @param misses supplies the number of baked textures.
+     * @param bytes supplies the size of the cached textures.
+     */
+    public void watchTerrainTextures(LongSupplier hits, LongSupplier misses, LongSupplier bytes) {
+        terrainTextureHits = hits;
+        terrainTextureMisses = misses;
+        terrainTextureBytes = bytes;
+    }
+
+    /**
+     * Sets the object pools that are reported.
+     *
+     * @param pools supplies the pools.
+     */
+    public void watchPools(Supplier<List<ObjectPool<?>>> pools) {
+        this.pools = pools;
+    }
+
+    /**
+     * Records a generated chunk. Safe to call from any thread.
+     *
+     * @param nanos the time the generation took.
+     * @param fromStore true if the chunk data was read from the saved world.
+     */
+    public void chunkGenerated(long nanos, boolean fromStore) {
+        chunksGenerated.increment();
+        if (fromStore) {
+            chunksReadFromStore.increment();
+        }
+        generationNanos.add(nanos);
+        double millis = nanos / 1e6;
+        int bucket = 0;
+        while (bucket < GENERATION_BUCKET_MILLIS.length && millis > GENERATION_BUCKET_MILLIS[bucket]) {
+            bucket++;
+        }
+        generationHistogram[bucket].increment();
+    }
+
+    /**
+     * Records a chunk entering the game.
+     */
+    public void chunkLoaded() {
+        loadedChunks.increment();
+    }
+
+    /**
+     * Records a chunk leaving the game.
+     */
+    public void chunkUnloaded() {
+        loadedChunks.decrement();
+        chunksUnloaded.increment();
+    }
+
+    /**
+     * Records an object added to the game.
+     *
+     * @param obj the object.
+     */
+    public void objectAdded(Object obj) {
+        LongAdder live = liveCounter(obj);
+        if (live != null) {
+            live.increment();
+        }
+    }
+
+    /**
+     * Records an object removed from the game.
+     *
+     * @param obj the object.
+     */
+    public void objectRemoved(Object obj) {
+        LongAdder live = liveCounter(obj);
+        if (live != null) {
+            live.decrement();
+        }
+    }
+
+    /**
+     * Records a fruit picked up by the avatar.
+     */
+    public void fruitPickedUp() {
+        fruitPickups.increment();
+    }
+
+    /**
+     * Records calls to energy listeners.
+     *
+     * @param listenerCount the number of listeners that were called.
+     */
+    public void energyListenersCalled(int listenerCount) {
+        energyListenerDispatches.add(listenerCount);
+    }
+
+    private LongAdder liveCounter(Object obj) {
+        if (obj instanceof Block) return liveBlocks;
+        if (obj instanceof Leaf) return liveLeaves;
+        if (obj instanceof Canopy) return liveCanopies;
+        if (obj instanceof Fruit) return liveFruits;
+        if (obj instanceof Trunk) return liveTrunks;
+        return null;
+    }
+
+    @Override
+    public long getLoadedChunks() { return loadedChunks.sum(); }
+
+    @Override
+    public long getChunksGenerated() { return chunksGenerated.sum(); }
+
+    @Override
+    public long getChunksReadFromStore() { return chunksReadFromStore.sum(); }
+
+    @Override
+    public long getChunksUnloaded() { return chunksUnloaded.sum(); }
+
+    @Override
+    public String[] getGenerationTimeBuckets() {
+        String[] buckets = new String[generationHistogram.length];
+        for (int i = 0; i < GENERATION_BUCKET_MILLIS.length; i++) {
+            buckets[i] = "<= " + GENERATION_BUCKET_MILLIS[i] + " ms";
+        }
+        buckets[buckets.length - 1] = "> " + GENERATION_BUCKET_MILLIS[GENERATION_BUCKET_MILLIS.length - 1] + " ms";
+        return buckets;
+    }
+
+    @Override
+    public long[] getGenerationTimeHistogram() {
+        long[] counts = new long[generationHistogram.length];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = generationHistogram[i].sum();
+        }
+        return counts;
+    }
+
+    @Override
+    public double getMeanGenerationMillis() {
+        long generated = chunksGenerated.sum();
+        return generated == 0 ? 0 : generationNanos.sum() / 1e6 / generated;
+    }
+
+    @Override
+    public long getLiveBlocks() { return liveBlocks.sum(); }
+
+    @Override
+    public long getLiveTrunks() { return liveTrunks.sum(); }
+
+    @Override
+    public long getLiveLeaves() { return liveLeaves.sum(); }
+
+    @Override
+    public long getLiveCanopies() { return liveCanopies.sum(); }
+
+    @Override
+    public long getLiveFruits() { return liveFruits.sum(); }
+
+    @Override
+    public long getFruitPickups() { return fruitPickups.sum(); }
+
+    @Override
+    public long getEnergyListenerDispatches() { return energyListenerDispatches.sum(); }
+
+    @Override
+    public long getChunkCacheHits() { return chunkCacheHits.getAsLong(); }
+
+    @Override
+    public long getChunkCacheMisses() { return chunkCacheMisses.getAsLong(); }
+
+    @Override
+    public long getHeightCacheHits() { return heightCacheHits.getAsLong(); }
+
+    @Override
+    public long getHeightCacheMisses() { return heightCacheMisses.getAsLong(); }
+
+    @Override
+    public long getTerrainTextureHits() { return terrainTextureHits.getAsLong(); }
+
+    @Override
+    public long getTerrainTextureMisses() { return terrainTextureMisses.getAsLong(); }
+
+    @Override
+    public long getTerrainTextureBytes() { return terrainTextureBytes.getAsLong(); }
+
+    @Override
+    public String[] getPoolStats() {
+        List<ObjectPool<?>> current = pools.get();
+        String[] stats = new String[current.size()];
+        for (int i = 0; i < stats.length; i++) {
+            ObjectPool<?> pool = current.get(i);
+            stats[i] = pool.name() + ": " + pool.size() + "/" + pool.capacity()
+                    + ", reused " + pool.reused() + ", missed " + pool.missed()
+                    + ", dropped " + pool.dropped();
+        }
+        return stats;
+    }
+}
@@ -0,0 +1,116 @@
+package pepse.diagnostics;
+
+/**
+ * The management interface of {@link PepseMetrics}, as shown by jconsole or VisualVM.
+ */
+public interface PepseMetricsMBean {
+    /**
+     * @return the number of chunks currently in the game
+     */
+    long getLoadedChunks();
+
+    /**
+     * @return the number of chunks whose objects were created, in total
+     */
+    long getChunksGenerated();
+
+    /**
+     * @return how many of the generated chunks were read from the saved world
+     */
+    long getChunksReadFromStore();
+
+    /**
+     * @return the number of chunks removed from the game, in total
+     */
+    long getChunksUnloaded();
+
+    /**
+     * @return the upper bounds of the generation time histogram buckets
+     */
+    String[] getGenerationTimeBuckets();
+
+    /**
+     * @return the number of chunks generated within each bucket of {@link #getGenerationTimeBuckets()}
+     */
+    long[] getGenerationTimeHistogram();
+
+    /**
+     * @return the average time it took to generate a chunk, in milliseconds
+     */
+    double getMeanGenerationMillis();
+
+    /**
+     * @return the number of terrain blocks in the game
+     */
+    long getLiveBlocks();
+
+    /**
+     * @return the number of tree trunks in the game
+     */
+    long getLiveTrunks();
+
+    /**
+     * @return the number of leaves in the game
+     */
+    long getLiveLeaves();
+
+    /**
+     * @return the number of baked tree crowns in the game
+     */
+    long getLiveCanopies();
+
+    /**
+     * @return the number of fruits in the game
+     */
+    long getLiveFruits();
+
+    /**
+     * @return the number of fruits picked up by the avatar, in total
+     */
+    long getFruitPickups();
+
+    /**
+     * @return the number of times an energy listener was called, in total
+     */
+    long getEnergyListenerDispatches();
+
+    /**
+     * @return lookups that found an unloaded chunk in the chunk cache
+     */
+    long getChunkCacheHits();
+
+    /**
+     * @return lookups that did not find an unloaded chunk in the chunk cache
+     */
+    long getChunkCacheMisses();
+
+    /**
+     * @return ground height lookups answered by the height cache
+     */
+    long getHeightCacheHits();
+
+    /**
+     * @return ground height lookups that had to compute the noise
+     */
+    long getHeightCacheMisses();
+
+    /**
+     * @return chunk terrain textures taken from the texture cache
+     */
+    long getTerrainTextureHits();
+
+    /**
+     * @return chunk terrain textures that had to be baked
+     */
+    long getTerrainTextureMisses();
+
+    /**
+     * @return the size, in bytes, of the cached terrain textures
+     */
+    long getTerrainTextureBytes();
+
+    /**
+     * @return one line per object pool: its size, capacity and how often it was used
+     */
+    String[] getPoolStats();
+}
@@ -0,0 +1,42 @@
+package pepse.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event: generating terrain data for a range of columns, or creating the terrain objects
+ * from it.
+ */
+@Name("pepse.Terrain")
+@Label("Terrain")
+@Category({"Pepse", "Generation"})
+@Description("Generating terrain data for a range of columns, or creating the terrain "
+        + "objects from it.")
+public class TerrainEvent extends Event {
+    /**
+     * generate, build or bake.
+     */
+    @Label("Phase")
+    public String phase;
+
+    /**
+     * index of the first block column.
+     */
+    @Label("First Column")
+    public int firstColumn;
+
+    /**
+     * the number of block columns.
+     */
+    @Label("Column Count")
+    public int columnCount;
+
+    /**
+     * the number of objects created, 0 when generating.
+     */
+    @Label("Object Count")
+    public int objectCount;
+}
@@ -0,0 +1,37 @@
+package pepse.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * JFR event: creating the objects of a single tree.
+ * there are thousands of trees, so by default only trees slower than the threshold are recorded.
+ */
+@Name("pepse.Tree")
+@Label("Tree")
+@Category({"Pepse", "Generation"})
+@Description("Creating the objects of a single tree.")
+@Threshold("100 us")
+public class TreeEvent extends Event {
+    /**
+     * the x coordinate of the trunk.
+     */
+    @Label("Trunk X")
+    public int trunkX;
+
+    /**
+     * the number of leaves.
+     */
+    @Label("Leaf Count")
+    public int leafCount;
+
+    /**
+     * the number of fruits.
+     */
+    @Label("Fruit Count")
+    public int fruitCount;
+}
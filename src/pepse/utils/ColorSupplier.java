@@ -1,15 +1,17 @@
 package pepse.utils;
 
 import java.awt.*;
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * Provides procedurally-generated colors around a pivot.
+ *
+ * The methods taking a {@link HashRandom} key always return the same color for the same key, the
+ * others return a different color every call.
  * @author Dan Nirel
  */
 public final class ColorSupplier {
     private static final int DEFAULT_COLOR_DELTA = 10;
-    private final static Random random = new Random();
 
     /**
      * Returns a color similar to baseColor, with a default delta.
@@ -31,7 +33,8 @@ public final class ColorSupplier {
      * @return A color similar to baseColor.
      */
     public static Color approximateMonoColor(Color baseColor, int colorDelta){
-        int channel = randomChannelInRange(baseColor.getRed()-colorDelta, baseColor.getRed()+colorDelta);
+        long key = ThreadLocalRandom.current().nextLong();
+        int channel = channelInRange(key, 0, baseColor.getRed()-colorDelta, baseColor.getRed()+colorDelta);
         return new Color(channel, channel, channel);
     }
 
@@ -57,22 +60,36 @@ public final class ColorSupplier {
      * @return A color similar to baseColor.
      */
     public static Color approximateColor(Color baseColor, int colorDelta) {
+        return approximateColor(baseColor, colorDelta, ThreadLocalRandom.current().nextLong());
+    }
 
+    /**
+     * Returns a color similar to baseColor, with a difference of at most colorDelta, chosen by a
+     * {@link HashRandom} key.
+     *
+     * @param baseColor A color that we wish to approximate.
+     * @param colorDelta The maximal difference (per channel) between the sampled color and the base color.
+     * @param key the key the color is chosen by.
+     * @return A color similar to baseColor, the same for the same key.
+     */
+    public static Color approximateColor(Color baseColor, int colorDelta, long key) {
         return new Color(
-                randomChannelInRange(baseColor.getRed()-colorDelta, baseColor.getRed()+colorDelta),
-                randomChannelInRange(baseColor.getGreen()-colorDelta, baseColor.getGreen()+colorDelta),
-                randomChannelInRange(baseColor.getBlue()-colorDelta, baseColor.getBlue()+colorDelta));
+                channelInRange(key, 0, baseColor.getRed()-colorDelta, baseColor.getRed()+colorDelta),
+                channelInRange(key, 1, baseColor.getGreen()-colorDelta, baseColor.getGreen()+colorDelta),
+                channelInRange(key, 2, baseColor.getBlue()-colorDelta, baseColor.getBlue()+colorDelta));
     }
 
     /**
      * This method generates a random value for a color channel within the given range [min, max].
      *
+     * @param key the {@link HashRandom} key of the color.
+     * @param counter the index of the channel.
      * @param min The lower bound of the given range.
      * @param max The upper bound of the given range.
      * @return A random number in the range [min, max], clipped to [0,255].
      */
-    private static int randomChannelInRange(int min, int max) {
-        int channel = random.nextInt(max-min+1) + min;
+    private static int channelInRange(long key, int counter, int min, int max) {
+        int channel = HashRandom.intAt(key, counter, max-min+1) + min;
         return Math.min(255, Math.max(channel, 0));
     }
 }
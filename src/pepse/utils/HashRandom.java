@@ -0,0 +1,88 @@
+package pepse.utils;
+
+/**
+ * A stateless random number generator: every value is a hash of where it is used.
+ *
+ * A key is derived from the world seed, a position and a stream (what the value is used for),
+ * and the n-th value of a key is a SplitMix64 hash of the key and n. Nothing is allocated and
+ * nothing is shared between threads, and a value only depends on its position, so the world
+ * comes out the same whatever order, or thread, it is generated in.
+ */
+public final class HashRandom {
+    /**
+     * the increment of SplitMix64, 2^64 divided by the golden ratio
+     */
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private static final float FLOAT_UNIT = 1f / (1 << 24);
+
+    private HashRandom() { }
+
+    /**
+     * @param seed the world seed.
+     * @param x x coordinate (or column) of the position.
+     * @param y y coordinate (or row) of the position.
+     * @param stream what the values are used for, so different uses at the same position are
+     *               independent.
+     * @return the key of the values used at the position.
+     */
+    public static long key(long seed, int x, int y, int stream) {
+        long key = mix(seed + GOLDEN_GAMMA);
+        key = mix(key ^ (x & 0xFFFFFFFFL));
+        key = mix(key ^ ((long) y << 32 | (stream & 0xFFFFFFFFL)));
+        return key;
+    }
+
+    /**
+     * @param key a key from {@link #key}, or a value of another key.
+     * @param counter the index of the value.
+     * @return 64 random bits.
+     */
+    public static long at(long key, int counter) {
+        return mix(key + (counter + 1L) * GOLDEN_GAMMA);
+    }
+
+    /**
+     * @param key a key from {@link #key}.
+     * @param counter the index of the value.
+     * @return a float uniformly distributed in [0, 1).
+     */
+    public static float floatAt(long key, int counter) {
+        return (at(key, counter) >>> 40) * FLOAT_UNIT;
+    }
+
+    /**
+     * @param key a key from {@link #key}.
+     * @param counter the index of the value.
+     * @param bound the upper bound (exclusive), must be positive.
+     * @return an int uniformly distributed in [0, bound).
+     */
+    public static int intAt(long key, int counter, int bound) {
+        return (int) (((at(key, counter) >>> 32) * bound) >>> 32);
+    }
+
+    /**
+     * A cheap 32 bit hash of a position alone, for spreading positions over a table rather than
+     * for random values: no seed, no stream and a single round of mixing.
+     *
+     * @param x x coordinate (or column) of the position.
+     * @param y y coordinate (or row) of the position.
+     * @return the hash of the position, any of its bits may be used.
+     */
+    public static int positionHash(int x, int y) {
+        int hash = x * 0x9E3779B9 + y * 0x85EBCA6B;
+        hash ^= hash >>> 16;
+        hash *= 0x7FEB352D;
+        hash ^= hash >>> 15;
+        return hash;
+    }
+
+    /**
+     * The finalizer of SplitMix64 (variant 13 of David Stafford's mixers).
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
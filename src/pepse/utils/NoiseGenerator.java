@@ -85,6 +85,101 @@ public class NoiseGenerator {
         return value * factor / startPoint;
     }
 
+    /**
+     * Computes {@link #noise(double, double)} for a run of evenly spaced x values at once.
+     * out[i] receives the noise at {@code startX + i * stepX}, and is bit-identical to calling
+     * {@code noise(startX + i * stepX, factor)}.
+     *
+     * The octaves are evaluated one at a time over the whole run, with the parts of the lattice
+     * that do not depend on x computed once: y is the same for every sample (the seed offset) and
+     * z is always 0. The inner loop is a plain loop over primitive arrays.
+     *
+     * @param startX the first x to receive noise for.
+     * @param stepX the distance between two consecutive x values (in our case, the block size).
+     * @param factor describes how large the noise should be, same as in {@link #noise(double, double)}.
+     * @param out receives the noise values, its length is the number of x values.
+     */
+    public void noiseRange(double startX, double stepX, double factor, double[] out) {
+        int count = out.length;
+        for (int i = 0; i < count; i++) {
+            out[i] = 0.0;
+        }
+
+        // y is constant (the seed offset), so its lattice cell and fade are the same for every sample
+        double y = this.seed;
+        int latticeY = (int) Math.floor(y) & 255;
+        y -= Math.floor(y);
+        double fadeY = fade(y);
+
+        double currentPoint = startPoint;
+        while (currentPoint >= 1) {
+            for (int i = 0; i < count; i++) {
+                double x = (startX + i * stepX) / currentPoint;
+                out[i] += smoothNoise1D(x, latticeY, y, fadeY) * currentPoint;
+            }
+            currentPoint /= 2.0;
+        }
+
+        for (int i = 0; i < count; i++) {
+            out[i] = out[i] * factor / startPoint;
+        }
+    }
+
+    /**
+     * Computes {@link #noise(double, double)} for a run of evenly spaced x values at once, as
+     * floats. out[i] is bit-identical to {@code (float) noise(startX + i * stepX, factor)}: the
+     * octaves of each sample are summed in double precision and only the result is narrowed.
+     *
+     * @param startX the first x to receive noise for.
+     * @param stepX the distance between two consecutive x values (in our case, the block size).
+     * @param factor describes how large the noise should be, same as in {@link #noise(double, double)}.
+     * @param out receives the noise values, its length is the number of x values.
+     */
+    public void noiseRange(double startX, double stepX, double factor, float[] out) {
+        // y is constant (the seed offset), so its lattice cell and fade are the same for every sample
+        double y = this.seed;
+        int latticeY = (int) Math.floor(y) & 255;
+        y -= Math.floor(y);
+        double fadeY = fade(y);
+
+        for (int i = 0; i < out.length; i++) {
+            double x = startX + i * stepX;
+            double value = 0.0;
+            double currentPoint = startPoint;
+            while (currentPoint >= 1) {
+                value += smoothNoise1D(x / currentPoint, latticeY, y, fadeY) * currentPoint;
+                currentPoint /= 2.0;
+            }
+            out[i] = (float) (value * factor / startPoint);
+        }
+    }
+
+    /**
+     * {@link #smoothNoise(double, double, double)} for y = z = 0, so y is only the seed offset,
+     * with the y dependent values precomputed. With z = 0 the blend between the two z planes
+     * always picks the first one, so only four of the eight cube corners are evaluated.
+     */
+    private double smoothNoise1D(double x, int latticeY, double y, double fadeY) {
+        x += this.seed;
+        x += this.seed;
+
+        int X = (int) Math.floor(x) & 255;
+        x -= Math.floor(x);
+        double u = fade(x);
+
+        int A = p[X] + latticeY;
+        int AA = p[A];
+        int AB = p[A + 1];
+        int B = p[X + 1] + latticeY;
+        int BA = p[B];
+        int BB = p[B + 1];
+
+        return lerp(fadeY, lerp(u, grad(p[AA], x, y, 0.0),
+                        grad(p[BA], x - 1, y, 0.0)),
+                lerp(u, grad(p[AB], x, y - 1, 0.0),
+                        grad(p[BB], x - 1, y - 1, 0.0)));
+    }
+
 
     private double smoothNoise(double x, double y, double z) {
         // Offset each coordinate by the seed value
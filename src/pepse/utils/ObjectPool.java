@@ -0,0 +1,101 @@
+package pepse.utils;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded pool of reusable objects.
+ *
+ * Objects are released to the pool once they are no longer in use and taken back out instead of
+ * allocating new ones. When the pool is full, released objects are dropped and left to the garbage
+ * collector. The pool keeps counters of how often it could and could not serve a request.
+ *
+ * The pool is safe to use from several threads.
+ *
+ * @param <T> the type of the pooled objects.
+ */
+public class ObjectPool<T> {
+    private final String name;
+    private final int capacity;
+    private final ArrayDeque<T> free;
+    private final LongAdder reused = new LongAdder();
+    private final LongAdder missed = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    /**
+     * Creates a new empty pool.
+     *
+     * @param name a name describing the pooled objects, used when reporting the pool.
+     * @param capacity maximal number of free objects kept in the pool.
+     */
+    public ObjectPool(String name, int capacity) {
+        this.name = name;
+        this.capacity = capacity;
+        this.free = new ArrayDeque<>(capacity);
+    }
+
+    /**
+     * Takes a free object out of the pool.
+     *
+     * @return a free object, or null if the pool is empty and the caller has to create one.
+     */
+    public T acquire() {
+        T obj;
+        synchronized (free) {
+            obj = free.poll();
+        }
+        (obj != null ? reused : missed).increment();
+        return obj;
+    }
+
+    /**
+     * Returns an object that is no longer in use to the pool.
+     *
+     * @param obj the object to release.
+     * @return true if the object was kept, false if the pool was full.
+     */
+    public boolean release(T obj) {
+        synchronized (free) {
+            if (free.size() < capacity) {
+                free.push(obj);
+                return true;
+            }
+        }
+        dropped.increment();
+        return false;
+    }
+
+    /**
+     * @return the name of the pool
+     */
+    public String name() { return name; }
+
+    /**
+     * @return the maximal number of free objects kept in the pool
+     */
+    public int capacity() { return capacity; }
+
+    /**
+     * @return the current number of free objects in the pool
+     */
+    public int size() {
+        synchronized (free) {
+            return free.size();
+        }
+    }
+
+    /**
+     * @return the number of requests served with a pooled object
+     */
+    public long reused() { return reused.sum(); }
+
+    /**
+     * @return the number of requests that found the pool empty
+     */
+    public long missed() { return missed.sum(); }
+
+    /**
+     * @return the number of released objects dropped because the pool was full
+     */
+    public long dropped() { return dropped.sum(); }
+}
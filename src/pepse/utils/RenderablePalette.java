@@ -0,0 +1,94 @@
+package pepse.utils;
+
+import danogl.gui.rendering.Renderable;
+
+import java.awt.*;
+import java.util.function.Function;
+
+/**
+ * A fixed set of shared renderables, all variants of one base color.
+ *
+ * The variants are created once, objects then share them instead of allocating their own
+ * renderable and color. The variant used at a position is a deterministic hash of that position,
+ * so the same place in the world always looks the same.
+ */
+public class RenderablePalette {
+    private final Color[] colors;
+    private final Renderable[] variants;
+
+    /**
+     * Creates a palette with a single variant that is exactly the base color.
+     *
+     * @param baseColor the color of the palette.
+     * @param factory creates a renderable for a color.
+     */
+    public RenderablePalette(Color baseColor, Function<Color, Renderable> factory) {
+        this.colors = new Color[]{baseColor};
+        this.variants = new Renderable[]{factory.apply(baseColor)};
+    }
+
+    /**
+     * Creates a palette of colors similar to baseColor, as given by
+     * {@link ColorSupplier#approximateColor(Color, int, long)}. the variants depend only on the
+     * arguments, so every run of the game gets the same palette.
+     *
+     * @param baseColor the color the variants approximate.
+     * @param variantCount the number of variants.
+     * @param colorDelta The maximal difference (per channel) between a variant and the base color.
+     * @param factory creates a renderable for a color.
+     */
+    public RenderablePalette(Color baseColor, int variantCount, int colorDelta,
+                             Function<Color, Renderable> factory) {
+        this.colors = new Color[variantCount];
+        this.variants = new Renderable[variantCount];
+        for (int i = 0; i < variantCount; i++) {
+            long key = HashRandom.key(baseColor.getRGB(), i, colorDelta, variantCount);
+            colors[i] = ColorSupplier.approximateColor(baseColor, colorDelta, key);
+            variants[i] = factory.apply(colors[i]);
+        }
+    }
+
+    /**
+     * @return the number of variants in the palette.
+     */
+    public int size() {
+        return variants.length;
+    }
+
+    /**
+     * @param index index of a variant, between 0 and {@link #size()} - 1.
+     * @return the shared renderable of the variant.
+     */
+    public Renderable variant(int index) {
+        return variants[index];
+    }
+
+    /**
+     * @param index index of a variant, between 0 and {@link #size()} - 1.
+     * @return the color of the variant.
+     */
+    public Color color(int index) {
+        return colors[index];
+    }
+
+    /**
+     * @param x x coordinate (or column) of the position.
+     * @param y y coordinate (or row) of the position.
+     * @return the index of the variant used at the given position.
+     */
+    public int variantIndexAt(int x, int y) {
+        if (variants.length == 1) {
+            return 0;
+        }
+        return Math.floorMod(HashRandom.positionHash(x, y), variants.length);
+    }
+
+    /**
+     * @param x x coordinate (or column) of the position.
+     * @param y y coordinate (or row) of the position.
+     * @return the shared renderable used at the given position.
+     */
+    public Renderable variantAt(int x, int y) {
+        return variants[variantIndexAt(x, y)];
+    }
+}
@@ -0,0 +1,176 @@
+package pepse.utils;
+
+/**
+ * Runs delayed tasks for the whole game from a single place.
+ *
+ * A hashed timing wheel: time advances in fixed ticks, and every timer sits in the slot of the
+ * tick it is due at, modulo the number of slots. Scheduling and cancelling a timer take constant
+ * time, and each tick only looks at the timers of one slot. Timers are linked into the slots
+ * directly, so an object that schedules the same timer again and again allocates nothing.
+ *
+ * Timers fire at the first tick at or after their deadline. All methods must be called from the
+ * game thread.
+ */
+public class TimingWheel {
+
+    /**
+     * A task that can be scheduled on a wheel, then cancelled or scheduled again.
+     */
+    public static class Timer {
+        private final Runnable task;
+        private long deadlineTick;
+
+        /**
+         * the slot the timer is linked into, or IDLE or DUE
+         */
+        private int slot = IDLE;
+        private Timer previous;
+        private Timer next;
+        private Timer nextDue;
+
+        /**
+         * @param task the task run when the timer is due.
+         */
+        public Timer(Runnable task) {
+            this.task = task;
+        }
+
+        /**
+         * @return true if the timer is scheduled and not due yet
+         */
+        public boolean isScheduled() { return slot >= 0; }
+    }
+
+    private static final int IDLE = -1;
+
+    /**
+     * the timer is due in the current tick and about to run
+     */
+    private static final int DUE = -2;
+
+    private final float tickSeconds;
+    private final Timer[] slots;
+    private final int slotMask;
+    private long currentTick = 0;
+    private float sinceTick = 0f;
+    private int size = 0;
+
+    /**
+     * Creates a new empty wheel.
+     *
+     * @param tickSeconds the resolution of the wheel, in seconds.
+     * @param slotCount the number of slots, must be a power of two. timers further away than a
+     *                  full turn of the wheel are fine, they are skipped until their turn.
+     */
+    public TimingWheel(float tickSeconds, int slotCount) {
+        if (Integer.bitCount(slotCount) != 1) {
+            throw new IllegalArgumentException("slot count must be a power of two: " + slotCount);
+        }
+        this.tickSeconds = tickSeconds;
+        this.slots = new Timer[slotCount];
+        this.slotMask = slotCount - 1;
+    }
+
+    /**
+     * Schedules a timer, rescheduling it if it is already scheduled.
+     *
+     * @param timer the timer.
+     * @param delaySeconds seconds from now until the timer is due.
+     */
+    public void schedule(Timer timer, float delaySeconds) {
+        cancel(timer);
+        long ticks = Math.max(1, (long) Math.ceil((delaySeconds + sinceTick) / tickSeconds));
+        timer.deadlineTick = currentTick + ticks;
+        timer.slot = (int) (timer.deadlineTick & slotMask);
+        timer.previous = null;
+        timer.next = slots[timer.slot];
+        if (timer.next != null) {
+            timer.next.previous = timer;
+        }
+        slots[timer.slot] = timer;
+        size++;
+    }
+
+    /**
+     * Cancels a timer. Does nothing if it is not scheduled.
+     *
+     * @param timer the timer.
+     */
+    public void cancel(Timer timer) {
+        if (timer.slot == DUE) {
+            timer.slot = IDLE;
+        }
+        if (!timer.isScheduled()) return;
+        unlink(timer);
+        size--;
+    }
+
+    /**
+     * @param timer a timer.
+     * @return seconds until the timer is due, 0 if it is not scheduled.
+     */
+    public float remainingSeconds(Timer timer) {
+        if (!timer.isScheduled()) return 0f;
+        return Math.max(0f, (timer.deadlineTick - currentTick) * tickSeconds - sinceTick);
+    }
+
+    /**
+     * @return the number of scheduled timers
+     */
+    public int size() { return size; }
+
+    /**
+     * Advances the time and runs the timers that became due, in the order of their ticks.
+     *
+     * @param deltaTime time passed since last update (seconds)
+     */
+    public void advance(float deltaTime) {
+        sinceTick += deltaTime;
+        while (sinceTick >= tickSeconds) {
+            sinceTick -= tickSeconds;
+            currentTick++;
+            runDue((int) (currentTick & slotMask));
+        }
+    }
+
+    private void runDue(int slot) {
+        // unlink every due timer first, the tasks may schedule and cancel timers of this slot,
+        // including due ones that did not run yet
+        Timer due = null;
+        Timer timer = slots[slot];
+        while (timer != null) {
+            Timer next = timer.next;
+            if (timer.deadlineTick <= currentTick) {
+                unlink(timer);
+                size--;
+                timer.slot = DUE;
+                timer.nextDue = due;
+                due = timer;
+            }
+            timer = next;
+        }
+        while (due != null) {
+            Timer next = due.nextDue;
+            due.nextDue = null;
+            if (due.slot == DUE) {
+                due.slot = IDLE;
+                due.task.run();
+            }
+            due = next;
+        }
+    }
+
+    private void unlink(Timer timer) {
+        if (timer.previous != null) {
+            timer.previous.next = timer.next;
+        } else {
+            slots[timer.slot] = timer.next;
+        }
+        if (timer.next != null) {
+            timer.next.previous = timer.previous;
+        }
+        timer.previous = null;
+        timer.next = null;
+        timer.slot = IDLE;
+    }
+}
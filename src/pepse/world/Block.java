@@ -1,7 +1,5 @@
 package pepse.world;
 
-import danogl.GameObject;
-import danogl.components.GameObjectPhysics;
 import danogl.gui.rendering.Renderable;
 import danogl.util.Vector2;
 
@@ -9,7 +7,7 @@ import danogl.util.Vector2;
  * A single terrain block in the world.
  * blocks are static - immovable and are used to build the ground
  */
-public class Block extends GameObject {
+public class Block extends StaticGeometry {
 
     /**
      * The block is a square of SIZE x SIZE
@@ -25,7 +23,16 @@ public class Block extends GameObject {
     public Block(Vector2 topLeftCorner, Renderable renderable) {
         super(topLeftCorner, Vector2.ONES.mult(SIZE), renderable);
         setTag("block");
-        physics().preventIntersectionsFromDirection(Vector2.ZERO);
-        physics().setMass(GameObjectPhysics.IMMOVABLE_MASS);
+    }
+
+    /**
+     * Moves a block that is no longer in the game to a new position, so it can be reused.
+     *
+     * @param topLeftCorner The new top-left corner of the block in world coordinates
+     * @param renderable The new visual representation of the block.
+     */
+    public void reset(Vector2 topLeftCorner, Renderable renderable) {
+        setTopLeftCorner(topLeftCorner);
+        renderer().setRenderable(renderable);
     }
 }
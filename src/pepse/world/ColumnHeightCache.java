@@ -0,0 +1,114 @@
+package pepse.world;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded cache of ground heights for block-aligned terrain columns.
+ *
+ * Columns are grouped into fixed size chunks, each chunk is stored as a primitive array and is
+ * computed in one go the first time one of its columns is needed. When the cache is full the least
+ * recently used chunk is evicted.
+ *
+ * The cache is safe to use from several threads. Heights are computed outside the lock, so a miss
+ * does not hold up lookups of other chunks.
+ */
+public class ColumnHeightCache {
+
+    /**
+     * Computes the heights of a run of consecutive columns.
+     */
+    public interface ColumnFiller {
+
+        /**
+         * @param firstColumn index of the first column in the run.
+         * @param heights array to fill, one entry per column.
+         */
+        void fill(int firstColumn, float[] heights);
+    }
+
+    private final int columnsPerChunk;
+    private final ColumnFiller filler;
+    private final Map<Integer, float[]> chunks;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Creates a new cache.
+     *
+     * @param columnsPerChunk number of columns stored together.
+     * @param maxChunks maximal number of chunks kept in the cache.
+     * @param filler computes the heights of a chunk on a miss.
+     */
+    public ColumnHeightCache(int columnsPerChunk, int maxChunks, ColumnFiller filler) {
+        this.columnsPerChunk = columnsPerChunk;
+        this.filler = filler;
+        this.chunks = new LinkedHashMap<>(maxChunks + 1, 1f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, float[]> eldest) {
+                return size() > maxChunks;
+            }
+        };
+    }
+
+    /**
+     * @param column index of a block-aligned column (x divided by the block size).
+     * @return the ground height of the column.
+     */
+    public float heightAt(int column) {
+        int chunk = Math.floorDiv(column, columnsPerChunk);
+        return chunkHeights(chunk)[column - chunk * columnsPerChunk];
+    }
+
+    /**
+     * Copies the heights of a run of consecutive columns.
+     *
+     * @param firstColumn index of the first block-aligned column.
+     * @param out receives the heights, one entry per column.
+     */
+    public void heightsAt(int firstColumn, float[] out) {
+        int copied = 0;
+        while (copied < out.length) {
+            int column = firstColumn + copied;
+            int chunk = Math.floorDiv(column, columnsPerChunk);
+            int offset = column - chunk * columnsPerChunk;
+            int length = Math.min(columnsPerChunk - offset, out.length - copied);
+            System.arraycopy(chunkHeights(chunk), offset, out, copied, length);
+            copied += length;
+        }
+    }
+
+    private float[] chunkHeights(int chunk) {
+        float[] heights;
+        synchronized (chunks) {
+            heights = chunks.get(chunk);
+        }
+        if (heights != null) {
+            hits.increment();
+            return heights;
+        }
+        misses.increment();
+        heights = new float[columnsPerChunk];
+        filler.fill(chunk * columnsPerChunk, heights);
+        synchronized (chunks) {
+            // another thread may have computed the same chunk meanwhile, keep the first
+            float[] cached = chunks.putIfAbsent(chunk, heights);
+            return cached != null ? cached : heights;
+        }
+    }
+
+    /**
+     * @return the number of lookups answered from the cache.
+     */
+    public long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of lookups that had to compute a chunk.
+     */
+    public long misses() {
+        return misses.sum();
+    }
+}
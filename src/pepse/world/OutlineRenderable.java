@@ -0,0 +1,57 @@
+package pepse.world;
+
+import danogl.gui.rendering.Renderable;
+import danogl.util.Vector2;
+
+import java.awt.AlphaComposite;
+import java.awt.Color;
+import java.awt.Composite;
+import java.awt.Graphics2D;
+import java.awt.Polygon;
+import java.awt.geom.AffineTransform;
+
+/**
+ * Draws a filled polygon in a single color.
+ *
+ * The polygon is given in its own pixel coordinates, inside a box of the given size, and is
+ * stretched to the dimensions of the object it is drawn for. It does not rotate or flip.
+ */
+public class OutlineRenderable implements Renderable {
+    private final Polygon polygon;
+    private final Color color;
+    private final float width;
+    private final float height;
+
+    /**
+     * Creates a new outline renderable.
+     *
+     * @param xs x coordinates of the polygon's points.
+     * @param ys y coordinates of the polygon's points.
+     * @param width width of the box the points are in.
+     * @param height height of the box the points are in.
+     * @param color the fill color.
+     */
+    public OutlineRenderable(int[] xs, int[] ys, float width, float height, Color color) {
+        this.polygon = new Polygon(xs, ys, xs.length);
+        this.color = color;
+        this.width = width;
+        this.height = height;
+    }
+
+    @Override
+    public void render(Graphics2D g, Vector2 topLeftCorner, Vector2 dimensions,
+                       double degreesCounterClockwise, boolean isFlippedHorizontally,
+                       boolean isFlippedVertically, double opaqueness) {
+        AffineTransform transform = g.getTransform();
+        Composite composite = g.getComposite();
+        g.translate(topLeftCorner.x(), topLeftCorner.y());
+        g.scale(dimensions.x() / width, dimensions.y() / height);
+        if (opaqueness < 1) {
+            g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, (float) opaqueness));
+        }
+        g.setColor(color);
+        g.fillPolygon(polygon);
+        g.setComposite(composite);
+        g.setTransform(transform);
+    }
+}
@@ -0,0 +1,29 @@
+package pepse.world;
+
+import danogl.components.GameObjectPhysics;
+import danogl.gui.rendering.Renderable;
+import danogl.util.Vector2;
+
+/**
+ * Base of the immovable pieces of the world that other objects collide with: terrain blocks,
+ * terrain colliders and tree trunks.
+ *
+ * Like every {@link StaticObject} its per frame update does nothing. It has immovable mass and
+ * prevents intersections, collisions are done by the engine's collection outside of
+ * {@link #update(float)}. Objects that are only drawn extend {@link StaticObject} directly.
+ */
+public abstract class StaticGeometry extends StaticObject {
+
+    /**
+     * Creates a new immovable object that other objects can not pass through.
+     *
+     * @param topLeftCorner The top-left corner of the object in world coordinates
+     * @param dimensions the width and height of the object, in pixels
+     * @param renderable The visual representation of the object, null for an invisible one.
+     */
+    protected StaticGeometry(Vector2 topLeftCorner, Vector2 dimensions, Renderable renderable) {
+        super(topLeftCorner, dimensions, renderable);
+        physics().preventIntersectionsFromDirection(Vector2.ZERO);
+        physics().setMass(GameObjectPhysics.IMMOVABLE_MASS);
+    }
+}
@@ -0,0 +1,37 @@
+package pepse.world;
+
+import danogl.GameObject;
+import danogl.gui.rendering.Renderable;
+import danogl.util.Vector2;
+
+/**
+ * Base of the objects of the world that never move: the terrain's textures and outlines, and
+ * through {@link StaticGeometry} the pieces that collide.
+ *
+ * A static object has no components and no velocity, so its per frame update does nothing: no
+ * component walk and no transform integration. It is still rendered by the engine's collection
+ * outside of {@link #update(float)}. A subclass must not add components or give the object a
+ * velocity, they would be ignored.
+ */
+public abstract class StaticObject extends GameObject {
+
+    /**
+     * Creates a new object that never moves.
+     *
+     * @param topLeftCorner The top-left corner of the object in world coordinates
+     * @param dimensions the width and height of the object, in pixels
+     * @param renderable The visual representation of the object, null for an invisible one.
+     */
+    protected StaticObject(Vector2 topLeftCorner, Vector2 dimensions, Renderable renderable) {
+        super(topLeftCorner, dimensions, renderable);
+    }
+
+    /**
+     * Does nothing, a static object has nothing to update.
+     *
+     * @param deltaTime time passed since last update (seconds)
+     */
+    @Override
+    public final void update(float deltaTime) {
+    }
+}
@@ -1,10 +1,15 @@
 package pepse.world;
 
+import danogl.GameObject;
 import danogl.gui.rendering.RectangleRenderable;
+import danogl.gui.rendering.Renderable;
 import danogl.util.Vector2;
-import pepse.utils.ColorSupplier;
+import pepse.diagnostics.TerrainEvent;
 import pepse.utils.NoiseGenerator;
+import pepse.utils.ObjectPool;
+import pepse.utils.RenderablePalette;
 import pepse.world.Block;
+import pepse.world.chunks.ChunkData;
 
 import java.awt.*;
 import java.util.ArrayList;
@@ -15,7 +20,8 @@ import java.util.List;
  * The terrain height is based on a deterministic noise function, so the same x value always
  * produces the same ground height for a given seed
  *
- * The terrain is created from {@link Block} objects
+ * The terrain is created from {@link Block} objects, or, with a {@link TerrainBaker}, drawn from
+ * one baked {@link TerrainTexture} per chunk
  */
 public class Terrain {
 
@@ -34,14 +40,108 @@ public class Terrain {
      */
     private static final Color BASE_GROUND_COLOR = new Color(212, 123, 74);
 
+    /**
+     * shared ground renderables, each block picks one by its position
+     */
+    private static final int GROUND_COLOR_VARIANTS = 16;
+    private static final int GROUND_COLOR_DELTA = 10;
+    private static final RenderablePalette GROUND_PALETTE = new RenderablePalette(
+            BASE_GROUND_COLOR, GROUND_COLOR_VARIANTS, GROUND_COLOR_DELTA, RectangleRenderable::new);
+
     /**
      * how many blocks are generated below the ground surface.
      */
-    private static final int TERRAIN_DEPTH = 20;
+    public static final int TERRAIN_DEPTH = 20;
+
+    /**
+     * how many blocks at the top of each column stay individual colliders when buried colliders
+     * are merged. anything below them can not be reached by the avatar.
+     */
+    private static final int SURFACE_COLLIDER_DEPTH = 2;
+
+    /**
+     * default height cache layout, used when the caller does not size the cache itself
+     */
+    private static final int DEFAULT_CACHE_COLUMNS_PER_CHUNK = 16;
+    private static final int DEFAULT_CACHE_CHUNKS = 32;
+
+    /**
+     * maximal number of unloaded blocks kept for reuse
+     */
+    private static final int BLOCK_POOL_CAPACITY = 2048;
 
     private final Vector2 windowDimensions;
     private final float groundHeightAtX0;
     private final NoiseGenerator noiseGenerator;
+    private final ColumnHeightCache heightCache;
+    private final boolean mergeBuriedColliders;
+    private final TerrainBaker baker;
+
+    /**
+     * bakes the textures of {@link #createTexture}: the terrain's baker, or one of its own that
+     * caches nothing when it was not given one
+     */
+    private final TerrainBaker textureBaker;
+    private final boolean invisibleColliders;
+    private final ObjectPool<Block> blockPool = new ObjectPool<>("Block", BLOCK_POOL_CAPACITY);
+
+    /**
+     * Optional settings of a {@link Terrain}. Every setting has a default, so callers only set
+     * the ones they care about, e.g.
+     * {@code new Terrain.Options().heightCache(10, 24).mergeBuriedColliders(true)}.
+     */
+    public static class Options {
+        private int cacheColumnsPerChunk = DEFAULT_CACHE_COLUMNS_PER_CHUNK;
+        private int cacheChunks = DEFAULT_CACHE_CHUNKS;
+        private boolean mergeBuriedColliders = false;
+        private TerrainBaker baker = null;
+        private boolean invisibleColliders = true;
+
+        /**
+         * Sizes the cache of column heights.
+         *
+         * @param columnsPerChunk number of block columns whose heights are cached together.
+         * @param chunks maximal number of cached column chunks.
+         * @return these options
+         */
+        public Options heightCache(int columnsPerChunk, int chunks) {
+            this.cacheColumnsPerChunk = columnsPerChunk;
+            this.cacheChunks = chunks;
+            return this;
+        }
+
+        /**
+         * @param merge if true, {@link Terrain#createPackInRange(int, int)} keeps only the surface blocks
+         *              as colliders and merges the blocks below them. off by default.
+         * @return these options
+         */
+        public Options mergeBuriedColliders(boolean merge) {
+            this.mergeBuriedColliders = merge;
+            return this;
+        }
+
+        /**
+         * @param baker if not null, {@link Terrain#createFromData(ChunkData)} draws the terrain from
+         *              textures baked by it. a baker must not be shared with another terrain.
+         *              null by default.
+         * @return these options
+         */
+        public Options baker(TerrainBaker baker) {
+            this.baker = baker;
+            return this;
+        }
+
+        /**
+         * @param create if false, no {@link TerrainCollider}s are created, for when nothing
+         *               collides with the terrain, e.g. the avatar stands on the height field
+         *               through a ground solver. on by default.
+         * @return these options
+         */
+        public Options invisibleColliders(boolean create) {
+            this.invisibleColliders = create;
+            return this;
+        }
+    }
 
     /**
      * Creates a new terrain generator
@@ -50,22 +150,77 @@ public class Terrain {
      * @param seed used for deterministic terrain generation
      */
     public Terrain(Vector2 windowDimensions, int seed) {
+        this(windowDimensions, seed, new Options());
+    }
+
+    /**
+     * Creates a new terrain generator with the given settings.
+     *
+     * @param windowDimensions the window dimensions in pixels.
+     * @param seed used for deterministic terrain generation
+     * @param options the height cache size, how colliders are created and the baker, if any.
+     */
+    public Terrain(Vector2 windowDimensions, int seed, Options options) {
         this.windowDimensions = windowDimensions;
+        this.mergeBuriedColliders = options.mergeBuriedColliders;
+        this.baker = options.baker;
+        this.textureBaker = baker != null ? baker : new TerrainBaker(0);
+        this.invisibleColliders = options.invisibleColliders;
         this.groundHeightAtX0 = windowDimensions.y() * BASE_GROUND_Y_FACTOR;
         this.noiseGenerator = new NoiseGenerator(seed, (int) groundHeightAtX0);
+        this.heightCache = new ColumnHeightCache(options.cacheColumnsPerChunk, options.cacheChunks,
+                this::fillColumns);
     }
 
     /**
      * Computes the ground height at a given x coordinate
      *
+     * heights of block-aligned x values are cached, so each column's noise is computed once while
+     * the column is in use.
+     *
      * @param x the x coordinate in world space.
      * @return The y coordinate of the ground surface at x
      */
     public float groundHeightAt(float x) {
+        float column = x / Block.SIZE;
+        if (column == (int) column) {
+            return heightCache.heightAt((int) column);
+        }
+        return computeGroundHeightAt(x);
+    }
+
+    /**
+     * @return the number of column height lookups answered from the cache.
+     */
+    public long getHeightCacheHits() {
+        return heightCache.hits();
+    }
+
+    /**
+     * @return the number of column height lookups that had to compute the noise.
+     */
+    public long getHeightCacheMisses() {
+        return heightCache.misses();
+    }
+
+    private float computeGroundHeightAt(float x) {
         double noise = noiseGenerator.noise(x, Block.SIZE * NOISE_FACTOR);
         return (float) (groundHeightAtX0 + noise);
     }
 
+    /**
+     * Computes the heights of a run of consecutive columns with a single noise evaluation.
+     * The result is identical to calling {@link #computeGroundHeightAt(float)} per column.
+     */
+    private void fillColumns(int firstColumn, float[] heights) {
+        double[] noise = new double[heights.length];
+        float startX = (float) firstColumn * Block.SIZE;
+        noiseGenerator.noiseRange(startX, Block.SIZE, Block.SIZE * NOISE_FACTOR, noise);
+        for (int i = 0; i < heights.length; i++) {
+            heights[i] = (float) (groundHeightAtX0 + noise[i]);
+        }
+    }
+
     /**
      * creates all terrain blocks in the range {@code [minX, maxX]}
      *
@@ -74,23 +229,270 @@ public class Terrain {
      * @return a list of {@link Block} objects that form the terrain in this range
      */
     public List<Block> createInRange(int minX, int maxX) {
-        List<Block> blocks = new ArrayList<>();
+        return createBlocks(generateRange(minX, maxX));
+    }
+
+    /**
+     * creates the terrain in the range {@code [minX, maxX]}, split into colliders and fill.
+     *
+     * @param minX The minimum x coordinate.
+     * @param maxX The maximum x coordinate.
+     * @return a {@link TerrainPack} with the colliders and fill of this range
+     * @see #createFromData(ChunkData)
+     */
+    public TerrainPack createPackInRange(int minX, int maxX) {
+        return createFromData(generateRange(minX, maxX));
+    }
+
+    /**
+     * Records the surface height of every column of a chunk and the palette variant of every
+     * block below it in the chunk's data.
+     *
+     * @param data the data of the chunk, its depth should be {@link #TERRAIN_DEPTH}.
+     */
+    public void generate(ChunkData data) {
+        TerrainEvent event = new TerrainEvent();
+        event.begin();
         int size = Block.SIZE;
+        float[] heights = new float[data.columnCount()];
+        heightCache.heightsAt(data.firstColumn(), heights);
 
+        for (int column = 0; column < data.columnCount(); column++) {
+            int topY = (int) Math.floor(heights[column] / size) * size;
+            data.setColumnTop(column, topY);
+            for (int i = 0; i < data.depth(); i++) {
+                data.setBlockVariant(column, i,
+                        GROUND_PALETTE.variantIndexAt(data.firstColumn() + column, topY / size + i));
+            }
+        }
+        commitEvent(event, "generate", data, 0);
+    }
+
+    /**
+     * creates the terrain recorded in a chunk's data, split into colliders and fill.
+     *
+     * Without merging, every block is a collider. With merging, the top
+     * {@link #SURFACE_COLLIDER_DEPTH} blocks of each column stay colliders and the blocks below
+     * them become fill that is only drawn. Their collision is covered by one invisible
+     * {@link TerrainCollider} per run of neighboring columns with the same surface height, which
+     * covers exactly the same area as the blocks it replaces.
+     *
+     * With a {@link TerrainBaker}, no blocks are created: the fill is a single
+     * {@link TerrainTexture} drawing the whole chunk, and the colliders are invisible
+     * {@link TerrainCollider}s covering whole columns, merged into runs when merging is on.
+     *
+     * A terrain without invisible colliders creates no {@link TerrainCollider}s at all, the
+     * blocks it creates are still split the same way.
+     *
+     * @param data the data of the chunk.
+     * @return a {@link TerrainPack} with the colliders and fill of the chunk
+     */
+    public TerrainPack createFromData(ChunkData data) {
+        if (baker != null) {
+            return createBaked(data);
+        }
+        List<Block> blocks = createBlocks(data);
+        if (!mergeBuriedColliders) {
+            return new TerrainPack(new ArrayList<>(blocks), new ArrayList<>());
+        }
+
+        List<GameObject> colliders = new ArrayList<>();
+        List<GameObject> fill = new ArrayList<>();
+        int depth = data.depth();
+        int runStartX = 0;
+        float runTopY = 0;
+        int runColumns = 0;
+
+        // createBlocks lists the blocks column by column, top block first
+        for (int column = 0; column < data.columnCount(); column++) {
+            for (int i = 0; i < depth; i++) {
+                Block block = blocks.get(column * depth + i);
+                (i < SURFACE_COLLIDER_DEPTH ? colliders : fill).add(block);
+            }
+
+            if (!invisibleColliders) continue;
+            int x = (data.firstColumn() + column) * Block.SIZE;
+            int topY = data.columnTop(column);
+            if (runColumns > 0 && topY != runTopY) {
+                colliders.add(runCollider(runStartX, runTopY, runColumns, SURFACE_COLLIDER_DEPTH));
+                runColumns = 0;
+            }
+            if (runColumns == 0) {
+                runStartX = x;
+                runTopY = topY;
+            }
+            runColumns++;
+        }
+        if (runColumns > 0) {
+            colliders.add(runCollider(runStartX, runTopY, runColumns, SURFACE_COLLIDER_DEPTH));
+        }
+        return new TerrainPack(colliders, fill);
+    }
+
+    /**
+     * Creates a single texture drawing the terrain recorded in a chunk's data, without colliders.
+     * Safe to call from a worker thread.
+     *
+     * @param data the data of the chunk.
+     * @return the texture, baked by the terrain's {@link TerrainBaker}. a terrain without one
+     * bakes every texture again.
+     */
+    public TerrainTexture createTexture(ChunkData data) {
+        return textureBaker.textureOf(data, GROUND_PALETTE);
+    }
+
+    /**
+     * Creates the outline of the terrain in a run of columns, in the base ground color. The heights
+     * are computed without going through the height cache, so outlines of distant columns do not
+     * push the columns in use out of it.
+     *
+     * @param firstColumn index of the first block-aligned column.
+     * @param columnCount the number of columns.
+     * @return the outline, with the same shape as the blocks of the columns.
+     */
+    public TerrainOutline createOutline(int firstColumn, int columnCount) {
+        int size = Block.SIZE;
+        float[] heights = new float[columnCount];
+        fillColumns(firstColumn, heights);
+        int[] tops = new int[columnCount];
+        int minTop = Integer.MAX_VALUE;
+        int maxTop = Integer.MIN_VALUE;
+        for (int column = 0; column < columnCount; column++) {
+            tops[column] = (int) Math.floor(heights[column] / size) * size;
+            minTop = Math.min(minTop, tops[column]);
+            maxTop = Math.max(maxTop, tops[column]);
+        }
+
+        // along the tops from left to right, then back along the bottoms
+        int[] xs = new int[4 * columnCount];
+        int[] ys = new int[4 * columnCount];
+        for (int column = 0; column < columnCount; column++) {
+            int top = tops[column] - minTop;
+            int bottom = top + TERRAIN_DEPTH * size;
+            int back = 4 * columnCount - 2 * column - 2;
+            xs[2 * column] = column * size;
+            xs[2 * column + 1] = (column + 1) * size;
+            ys[2 * column] = top;
+            ys[2 * column + 1] = top;
+            xs[back] = (column + 1) * size;
+            xs[back + 1] = column * size;
+            ys[back] = bottom;
+            ys[back + 1] = bottom;
+        }
+        int width = columnCount * size;
+        int height = maxTop - minTop + TERRAIN_DEPTH * size;
+        return new TerrainOutline(new Vector2(firstColumn * size, minTop), new Vector2(width, height),
+                new OutlineRenderable(xs, ys, width, height, BASE_GROUND_COLOR));
+    }
+
+    private TerrainPack createBaked(ChunkData data) {
+        TerrainEvent event = new TerrainEvent();
+        event.begin();
+        List<GameObject> colliders = new ArrayList<>();
+        int runStartX = 0;
+        float runTopY = 0;
+        int runColumns = 0;
+
+        for (int column = 0; column < data.columnCount() && invisibleColliders; column++) {
+            int x = (data.firstColumn() + column) * Block.SIZE;
+            int topY = data.columnTop(column);
+            if (runColumns > 0 && (topY != runTopY || !mergeBuriedColliders)) {
+                colliders.add(runCollider(runStartX, runTopY, runColumns, 0));
+                runColumns = 0;
+            }
+            if (runColumns == 0) {
+                runStartX = x;
+                runTopY = topY;
+            }
+            runColumns++;
+        }
+        if (runColumns > 0) {
+            colliders.add(runCollider(runStartX, runTopY, runColumns, 0));
+        }
+
+        List<GameObject> fill = new ArrayList<>();
+        fill.add(baker.textureOf(data, GROUND_PALETTE));
+        commitEvent(event, "bake", data, colliders.size() + fill.size());
+        return new TerrainPack(colliders, fill);
+    }
+
+    private ChunkData generateRange(int minX, int maxX) {
+        int size = Block.SIZE;
         int startX = (int) Math.floor((double) minX / size) * size;
         int endX = (int) Math.ceil((double) maxX / size) * size;
 
-        for (int x = startX; x <= endX; x += size) {
-            int topY = (int) Math.floor(groundHeightAt(x) / size) * size;
+        ChunkData data = new ChunkData(startX / size, (endX - startX) / size + 1, TERRAIN_DEPTH);
+        generate(data);
+        return data;
+    }
+
+    private List<Block> createBlocks(ChunkData data) {
+        TerrainEvent event = new TerrainEvent();
+        event.begin();
+        List<Block> blocks = new ArrayList<>(data.columnCount() * data.depth());
+        int size = Block.SIZE;
+
+        for (int column = 0; column < data.columnCount(); column++) {
+            int x = (data.firstColumn() + column) * size;
+            int topY = data.columnTop(column);
 
-            for (int i = 0; i < TERRAIN_DEPTH; i++) {
-                RectangleRenderable renderable =
-                        new RectangleRenderable(ColorSupplier.approximateColor(BASE_GROUND_COLOR));
-                Block block = new Block(new Vector2(x, topY + i * size), renderable);
+            for (int i = 0; i < data.depth(); i++) {
+                Vector2 topLeft = new Vector2(x, topY + i * size);
+                Renderable renderable = GROUND_PALETTE.variant(data.blockVariant(column, i));
+                Block block = blockPool.acquire();
+                if (block == null) {
+                    block = new Block(topLeft, renderable);
+                } else {
+                    block.reset(topLeft, renderable);
+                }
                 blocks.add(block);
             }
         }
+        commitEvent(event, "build", data, blocks.size());
         return blocks;
     }
 
+    private static void commitEvent(TerrainEvent event, String phase, ChunkData data,
+                                    int objectCount) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.phase = phase;
+            event.firstColumn = data.firstColumn();
+            event.columnCount = data.columnCount();
+            event.objectCount = objectCount;
+            event.commit();
+        }
+    }
+
+    /**
+     * Releases a block that is no longer in the game so later chunks can reuse it.
+     *
+     * @param obj the object to release.
+     * @return true if the object is a terrain block.
+     */
+    public boolean recycle(GameObject obj) {
+        if (!(obj instanceof Block)) {
+            return false;
+        }
+        blockPool.release((Block) obj);
+        return true;
+    }
+
+    /**
+     * @return the pool terrain blocks are reused from, for reporting.
+     */
+    public ObjectPool<Block> blockPool() {
+        return blockPool;
+    }
+
+    /**
+     * @return a collider covering a run of columns with the same surface height, from the given
+     * number of blocks below the surface to the bottom of the terrain
+     */
+    private static TerrainCollider runCollider(int x, float topY, int columns, int fromDepth) {
+        int size = Block.SIZE;
+        return new TerrainCollider(
+                new Vector2(x, topY + fromDepth * size),
+                new Vector2(columns * size, (TERRAIN_DEPTH - fromDepth) * size));
+    }
 }
@@ -0,0 +1,158 @@
+package pepse.world;
+
+import danogl.gui.rendering.ImageRenderable;
+import danogl.gui.rendering.Renderable;
+import danogl.util.Vector2;
+import pepse.utils.RenderablePalette;
+import pepse.world.chunks.ChunkData;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.awt.image.WritableRaster;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bakes the terrain of a chunk into a single image, and keeps the images of recent chunks.
+ *
+ * The image holds every block of the chunk in its palette color, and is transparent above the
+ * surface. It is stored with one byte per pixel, indexing the colors of the palette. The cache
+ * is bounded by the total size of its images: when it grows past the limit the least recently
+ * used images are dropped, and baked again if their chunk comes back. A limit of 0 caches nothing.
+ *
+ * Images are cached by the columns they cover, so a baker serves a single {@link Terrain}.
+ *
+ * Chunks are built on the chunk loading threads, so the cache is safe to use from several threads.
+ * Images are baked outside the lock.
+ */
+public class TerrainBaker {
+
+    /**
+     * a baked image and the area of the world it covers
+     */
+    private static class Baked {
+        private final Renderable renderable;
+        private final int topY;
+        private final int height;
+        private final long bytes;
+
+        private Baked(Renderable renderable, int topY, int height, long bytes) {
+            this.renderable = renderable;
+            this.topY = topY;
+            this.height = height;
+            this.bytes = bytes;
+        }
+    }
+
+    private final long maxBytes;
+    private final Map<Long, Baked> textures = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes = 0;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Creates a new baker with an empty cache.
+     *
+     * @param maxBytes the maximal total size, in bytes, of the cached images. 0 caches nothing.
+     */
+    public TerrainBaker(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @param data the data of a chunk.
+     * @param palette the palette the data's block variants index.
+     * @return a new texture object drawing the terrain of the chunk, from the cached image when
+     * there is one.
+     */
+    public TerrainTexture textureOf(ChunkData data, RenderablePalette palette) {
+        long key = (long) data.firstColumn() << 32 | data.columnCount();
+        Baked baked;
+        synchronized (this) {
+            baked = textures.get(key);
+        }
+        if (baked != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+            baked = bake(data, palette);
+            cache(key, baked);
+        }
+        int width = data.columnCount() * Block.SIZE;
+        return new TerrainTexture(new Vector2(data.firstColumn() * Block.SIZE, baked.topY),
+                new Vector2(width, baked.height), baked.renderable);
+    }
+
+    /**
+     * @return the number of textures taken from the cache.
+     */
+    public long hits() { return hits.sum(); }
+
+    /**
+     * @return the number of textures that had to be baked.
+     */
+    public long misses() { return misses.sum(); }
+
+    /**
+     * @return the total size, in bytes, of the cached images.
+     */
+    public synchronized long bytes() { return bytes; }
+
+    private synchronized void cache(long key, Baked baked) {
+        Baked replaced = textures.put(key, baked);
+        if (replaced != null) {
+            // another thread baked the same chunk meanwhile
+            bytes -= replaced.bytes;
+        }
+        bytes += baked.bytes;
+        Iterator<Baked> eldest = textures.values().iterator();
+        while (bytes > maxBytes) {
+            bytes -= eldest.next().bytes;
+            eldest.remove();
+        }
+    }
+
+    private static Baked bake(ChunkData data, RenderablePalette palette) {
+        int size = Block.SIZE;
+        int topY = Integer.MAX_VALUE;
+        int bottomY = Integer.MIN_VALUE;
+        for (int column = 0; column < data.columnCount(); column++) {
+            topY = Math.min(topY, data.columnTop(column));
+            bottomY = Math.max(bottomY, data.columnTop(column) + data.depth() * size);
+        }
+        int width = data.columnCount() * size;
+        int height = bottomY - topY;
+
+        // index 0 is transparent, variant i is index i + 1
+        int colorCount = palette.size() + 1;
+        byte[] red = new byte[colorCount];
+        byte[] green = new byte[colorCount];
+        byte[] blue = new byte[colorCount];
+        byte[] alpha = new byte[colorCount];
+        for (int i = 0; i < palette.size(); i++) {
+            Color color = palette.color(i);
+            red[i + 1] = (byte) color.getRed();
+            green[i + 1] = (byte) color.getGreen();
+            blue[i + 1] = (byte) color.getBlue();
+            alpha[i + 1] = (byte) 0xFF;
+        }
+        IndexColorModel colors = new IndexColorModel(8, colorCount, red, green, blue, alpha);
+        BufferedImage image =
+                new BufferedImage(width, height, BufferedImage.TYPE_BYTE_INDEXED, colors);
+
+        WritableRaster raster = image.getRaster();
+        int[] samples = new int[size * size];
+        for (int column = 0; column < data.columnCount(); column++) {
+            int y = data.columnTop(column) - topY;
+            for (int i = 0; i < data.depth(); i++) {
+                Arrays.fill(samples, data.blockVariant(column, i) + 1);
+                raster.setSamples(column * size, y + i * size, size, size, 0, samples);
+            }
+        }
+        return new Baked(new ImageRenderable(image), topY, height, (long) width * height);
+    }
+}
@@ -0,0 +1,23 @@
+package pepse.world;
+
+import danogl.util.Vector2;
+
+/**
+ * An invisible, immovable collider that stands in for a rectangle of buried terrain blocks.
+ *
+ * It is tagged like a {@link Block}, so anything that lands on or runs into it behaves exactly as
+ * it would with the blocks it replaces.
+ */
+public class TerrainCollider extends StaticGeometry {
+
+    /**
+     * creates a new terrain collider
+     *
+     * @param topLeftCorner The top-left corner of the collider in world coordinates
+     * @param dimensions the width and height of the collider, in pixels
+     */
+    public TerrainCollider(Vector2 topLeftCorner, Vector2 dimensions) {
+        super(topLeftCorner, dimensions, null);
+        setTag("block");
+    }
+}
@@ -0,0 +1,26 @@
+package pepse.world;
+
+import danogl.gui.rendering.Renderable;
+import danogl.util.Vector2;
+
+/**
+ * The terrain of a distant chunk, drawn as its outline in a single color.
+ *
+ * The outline follows the tops and bottoms of the block columns exactly, so it has the same
+ * shape as the blocks or the {@link TerrainTexture} it stands in for, only without their colors.
+ * It is only drawn and takes no part in collisions.
+ */
+public class TerrainOutline extends StaticObject {
+
+    /**
+     * creates a new terrain outline
+     *
+     * @param topLeftCorner The top-left corner of the outline in world coordinates
+     * @param dimensions the width and height of the outline, in pixels
+     * @param renderable the outline.
+     */
+    public TerrainOutline(Vector2 topLeftCorner, Vector2 dimensions, Renderable renderable) {
+        super(topLeftCorner, dimensions, renderable);
+        setTag("terrain");
+    }
+}
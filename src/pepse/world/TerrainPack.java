@@ -0,0 +1,42 @@
+package pepse.world;
+
+import danogl.GameObject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A container bundling the GameObjects that make up the terrain created in a range.
+ *
+ * colliders take part in collisions, fill objects are only drawn, so callers can add each group
+ * to a layer with the right collision settings
+ */
+public class TerrainPack {
+    private final List<GameObject> colliders;
+    private final List<GameObject> fill;
+
+    /**
+     * Creates a new TerrainPack.
+     *
+     * @param colliders the surface blocks and merged colliders.
+     * @param fill the buried blocks that are only drawn.
+     */
+    public TerrainPack(List<GameObject> colliders, List<GameObject> fill) {
+        this.colliders = colliders;
+        this.fill = fill;
+    }
+
+    /**
+     * @return A copy of the colliders list
+     */
+    public List<GameObject> getColliders() {
+        return new ArrayList<>(colliders);
+    }
+
+    /**
+     * @return A copy of the fill list
+     */
+    public List<GameObject> getFill() {
+        return new ArrayList<>(fill);
+    }
+}
@@ -0,0 +1,26 @@
+package pepse.world;
+
+import danogl.gui.rendering.Renderable;
+import danogl.util.Vector2;
+
+/**
+ * The terrain of a whole chunk, drawn from a single baked image instead of one {@link Block} per
+ * block.
+ *
+ * The texture is only drawn, collisions with the terrain are left to {@link TerrainCollider}s or
+ * to the height field.
+ */
+public class TerrainTexture extends StaticObject {
+
+    /**
+     * creates a new terrain texture
+     *
+     * @param topLeftCorner The top-left corner of the texture in world coordinates
+     * @param dimensions the width and height of the texture, in pixels
+     * @param renderable the baked image of the terrain.
+     */
+    public TerrainTexture(Vector2 topLeftCorner, Vector2 dimensions, Renderable renderable) {
+        super(topLeftCorner, dimensions, renderable);
+        setTag("terrain");
+    }
+}
@@ -0,0 +1,29 @@
+package pepse.world;
+
+import danogl.GameObject;
+import danogl.util.Vector2;
+
+/**
+ * A non-physical volume that reacts when the avatar enters it, such as a fruit to pick up.
+ *
+ * Triggers take no part in the engine's collision detection, they are found by a
+ * {@link TriggerGrid}. A {@link GameObject} implements the bounds methods already.
+ */
+public interface Trigger {
+    /**
+     * @return the top-left corner of the volume in world coordinates
+     */
+    Vector2 getTopLeftCorner();
+
+    /**
+     * @return the width and height of the volume
+     */
+    Vector2 getDimensions();
+
+    /**
+     * Called once when an object starts overlapping the volume.
+     *
+     * @param other the object that entered the volume.
+     */
+    void onTriggerEnter(GameObject other);
+}
@@ -0,0 +1,129 @@
+package pepse.world;
+
+import danogl.GameObject;
+import danogl.util.Vector2;
+import pepse.utils.HashRandom;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Finds the {@link Trigger}s an object enters, without the engine's collision detection.
+ *
+ * Triggers are kept in a uniform spatial hash: the world is divided into square cells, and each
+ * trigger is listed in the buckets of the cells its bounds overlap. Once per frame
+ * {@link #update(GameObject)} looks at the cells under the given object only, and calls
+ * {@link Trigger#onTriggerEnter} for the triggers it started overlapping since the last frame.
+ * Triggers must not move while they are in the grid. All methods must be called from the game
+ * thread.
+ */
+public class TriggerGrid {
+    private static final int CELL_SIZE = 2 * Block.SIZE;
+
+    /**
+     * number of buckets, a power of two. cells that hash to the same bucket only cost an extra
+     * bounds check
+     */
+    private static final int BUCKET_COUNT = 1024;
+
+    private final List<List<Trigger>> buckets = new ArrayList<>(BUCKET_COUNT);
+    private List<Trigger> overlapping = new ArrayList<>();
+    private List<Trigger> overlappingNow = new ArrayList<>();
+    private int size = 0;
+
+    /**
+     * Creates an empty grid.
+     */
+    public TriggerGrid() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets.add(new ArrayList<>());
+        }
+    }
+
+    /**
+     * Adds a trigger that was added to the game.
+     *
+     * @param trigger the trigger.
+     */
+    public void add(Trigger trigger) {
+        Vector2 min = trigger.getTopLeftCorner();
+        Vector2 max = min.add(trigger.getDimensions());
+        for (int cx = cellOf(min.x()); cx <= cellOf(max.x()); cx++) {
+            for (int cy = cellOf(min.y()); cy <= cellOf(max.y()); cy++) {
+                buckets.get(bucketOf(cx, cy)).add(trigger);
+            }
+        }
+        size++;
+    }
+
+    /**
+     * Removes a trigger that was removed from the game.
+     *
+     * @param trigger the trigger.
+     */
+    public void remove(Trigger trigger) {
+        Vector2 min = trigger.getTopLeftCorner();
+        Vector2 max = min.add(trigger.getDimensions());
+        boolean removed = false;
+        for (int cx = cellOf(min.x()); cx <= cellOf(max.x()); cx++) {
+            for (int cy = cellOf(min.y()); cy <= cellOf(max.y()); cy++) {
+                removed |= buckets.get(bucketOf(cx, cy)).remove(trigger);
+            }
+        }
+        if (removed) {
+            size--;
+        }
+        overlapping.remove(trigger);
+    }
+
+    /**
+     * @return the number of triggers in the grid
+     */
+    public int size() { return size; }
+
+    /**
+     * Finds the triggers the object overlaps, and tells those it did not overlap in the last
+     * update that it entered them.
+     *
+     * @param obj the object, usually the avatar.
+     */
+    public void update(GameObject obj) {
+        Vector2 min = obj.getTopLeftCorner();
+        Vector2 max = min.add(obj.getDimensions());
+        overlappingNow.clear();
+        for (int cx = cellOf(min.x()); cx <= cellOf(max.x()); cx++) {
+            for (int cy = cellOf(min.y()); cy <= cellOf(max.y()); cy++) {
+                for (Trigger trigger : buckets.get(bucketOf(cx, cy))) {
+                    if (overlaps(trigger, min, max) && !overlappingNow.contains(trigger)) {
+                        overlappingNow.add(trigger);
+                    }
+                }
+            }
+        }
+
+        List<Trigger> previous = overlapping;
+        overlapping = overlappingNow;
+        overlappingNow = previous;
+        for (int i = 0; i < overlapping.size(); i++) {
+            Trigger trigger = overlapping.get(i);
+            if (!previous.contains(trigger)) {
+                trigger.onTriggerEnter(obj);
+            }
+        }
+    }
+
+    private static boolean overlaps(Trigger trigger, Vector2 min, Vector2 max) {
+        Vector2 triggerMin = trigger.getTopLeftCorner();
+        Vector2 triggerSize = trigger.getDimensions();
+        return triggerMin.x() < max.x() && triggerMin.x() + triggerSize.x() > min.x()
+                && triggerMin.y() < max.y() && triggerMin.y() + triggerSize.y() > min.y();
+    }
+
+    private static int cellOf(float coordinate) {
+        return (int) Math.floor(coordinate / CELL_SIZE);
+    }
+
+    private static int bucketOf(int cx, int cy) {
+        return HashRandom.positionHash(cx, cy) & (BUCKET_COUNT - 1);
+    }
+}
@@ -7,11 +7,15 @@ import danogl.gui.UserInputListener;
 import danogl.gui.rendering.AnimationRenderable;
 import danogl.gui.rendering.Renderable;
 import danogl.util.Vector2;
+import pepse.diagnostics.AvatarStateEvent;
+import pepse.diagnostics.PepseMetrics;
 
 import java.awt.event.KeyEvent;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
 
 /**
  * The playable character of the game.
@@ -111,7 +115,10 @@ public class Avatar extends GameObject {
     private boolean facingLeft = false;
 
 
-    private final UserInputListener inputListener;
+    /**
+     * tells whether a key (by its {@link KeyEvent} code) is pressed
+     */
+    private final IntPredicate keyPressed;
     private AvatarState currentState;
 
     private final List<Consumer<Float>> energyListeners = new ArrayList<>();
@@ -120,6 +127,12 @@ public class Avatar extends GameObject {
     private final AnimationRenderable runAnimation;
     private final AnimationRenderable jumpAnimation;
 
+    /**
+     * null while the avatar stands on terrain blocks through the engine's collisions
+     */
+    private GroundSolver groundSolver;
+    private boolean grounded = false;
+
     /**
      * Creates a new avatar.
      *
@@ -130,21 +143,35 @@ public class Avatar extends GameObject {
     public Avatar(Vector2 topLeftCorner,
                   UserInputListener inputListener,
                   ImageReader imageReader) {
+        this(topLeftCorner, inputListener::isKeyPressed, path -> imageReader.readImage(path, true));
+    }
+
+    /**
+     * Creates a new avatar that does not depend on the engine's input and image loading, for
+     * example to drive it from a script.
+     *
+     * @param topLeftCorner The starting top-left position (world coordinates)
+     * @param keyPressed tells whether a key, given by its {@link KeyEvent} code, is pressed.
+     * @param frameLoader loads an animation frame given its path.
+     */
+    public Avatar(Vector2 topLeftCorner,
+                  IntPredicate keyPressed,
+                  Function<String, Renderable> frameLoader) {
 
         super(topLeftCorner,
                 Vector2.ONES.mult(AVATAR_SIZE),
-                imageReader.readImage(IDLE_IMAGE_PATH, true));
+                frameLoader.apply(IDLE_IMAGE_PATH));
 
-        this.inputListener = inputListener;
+        this.keyPressed = keyPressed;
 
         physics().preventIntersectionsFromDirection(Vector2.ZERO);
         transform().setAccelerationY(GRAVITY);
 
         setTag(AVATAR_TAG);
 
-        idleAnimation = loadAnimation(imageReader, "idle_", IDLE_FRAMES);
-        runAnimation = loadAnimation(imageReader, "run_", RUN_FRAMES);
-        jumpAnimation = loadAnimation(imageReader, "jump_", JUMP_FRAMES);
+        idleAnimation = loadAnimation(frameLoader, "idle_", IDLE_FRAMES);
+        runAnimation = loadAnimation(frameLoader, "run_", RUN_FRAMES);
+        jumpAnimation = loadAnimation(frameLoader, "jump_", JUMP_FRAMES);
 
         this.currentState = new IdleState();
         this.currentState.onEnter(this);
@@ -159,15 +186,30 @@ public class Avatar extends GameObject {
         return AVATAR_SIZE;
     }
 
+    /**
+     * Makes the avatar stand on the terrain's height field instead of on colliding blocks. The
+     * terrain blocks then no longer need to collide with the avatar.
+     *
+     * @param groundSolver the solver, or null to go back to colliding with blocks.
+     */
+    public void setGroundSolver(GroundSolver groundSolver) {
+        this.groundSolver = groundSolver;
+    }
+
     /**
      * Updates the avatar each frame
-     * handle state transitions and delegates behavior to the active state.
+     * resolves the ground contact when a ground solver is set, handle state transitions and
+     * delegates behavior to the active state.
      *
      * @param deltaTime time passed since last update (seconds)
      */
     @Override
     public void update(float deltaTime) {
+        Vector2 previousTopLeft = getTopLeftCorner();
         super.update(deltaTime);
+        if (groundSolver != null) {
+            grounded = groundSolver.solve(this, previousTopLeft);
+        }
 
         if (isOnGround()) {
             doubleJumpUsed = false;
@@ -175,13 +217,23 @@ public class Avatar extends GameObject {
 
         AvatarState nextState = chooseNextState();
         if (!nextState.getClass().equals(currentState.getClass())) {
+            AvatarStateEvent event = new AvatarStateEvent();
+            event.begin();
+            AvatarState previousState = currentState;
             currentState.onExit(this);
             currentState = nextState;
             currentState.onEnter(this);
+            event.end();
+            if (event.shouldCommit()) {
+                event.from = previousState.getClass().getSimpleName();
+                event.to = nextState.getClass().getSimpleName();
+                event.energy = energy;
+                event.commit();
+            }
         }
 
         currentState.update(this, deltaTime);
-        spacePressedLastUpdate = inputListener.isKeyPressed(KeyEvent.VK_SPACE);
+        spacePressedLastUpdate = keyPressed.test(KeyEvent.VK_SPACE);
     }
 
     /**
@@ -206,25 +258,29 @@ public class Avatar extends GameObject {
 
 
     private boolean isLeftPressed() {
-        return inputListener.isKeyPressed(KeyEvent.VK_LEFT);
+        return keyPressed.test(KeyEvent.VK_LEFT);
     }
 
     private boolean isRightPressed() {
-        return inputListener.isKeyPressed(KeyEvent.VK_RIGHT);
+        return keyPressed.test(KeyEvent.VK_RIGHT);
     }
 
     /**
      * returns true only on the transition from not pressed to pressed
      */
     private boolean isSpaceJustPressed() {
-        boolean now = inputListener.isKeyPressed(KeyEvent.VK_SPACE);
+        boolean now = keyPressed.test(KeyEvent.VK_SPACE);
         return now && !spacePressedLastUpdate;
     }
 
     /**
-     * treat on ground as zero vertical velocity.
+     * treat on ground as zero vertical velocity. with a ground solver, standing on the terrain is
+     * told by the solver, trunks still collide through the engine and stop the fall as before.
      */
     private boolean isOnGround() {
+        if (groundSolver != null && grounded) {
+            return true;
+        }
         return getVelocity().y() == 0;
     }
 
@@ -281,6 +337,7 @@ public class Avatar extends GameObject {
         for (Consumer<Float> listener : energyListeners) {
             listener.accept(energy);
         }
+        PepseMetrics.get().energyListenersCalled(energyListeners.size());
     }
 
     /**
@@ -294,10 +351,11 @@ public class Avatar extends GameObject {
         listener.accept(energy);
     }
 
-    private AnimationRenderable loadAnimation(ImageReader imageReader, String prefix, int frameCount) {
+    private AnimationRenderable loadAnimation(Function<String, Renderable> frameLoader,
+                                              String prefix, int frameCount) {
         Renderable[] frames = new Renderable[frameCount];
         for (int i = 0; i < frameCount; i++) {
-            frames[i] = imageReader.readImage(ASSETS_DIR + prefix + i + ".png", true);
+            frames[i] = frameLoader.apply(ASSETS_DIR + prefix + i + ".png");
         }
         return new AnimationRenderable(frames, FRAME_DURATION);
     }
@@ -0,0 +1,130 @@
+package pepse.world.avatar;
+
+import danogl.GameObject;
+import danogl.util.Vector2;
+import pepse.world.Block;
+
+import java.util.function.Function;
+
+/**
+ * Keeps an object on the terrain using the terrain's height field instead of colliding with its
+ * blocks.
+ *
+ * The ground is the top of the block columns, as returned by the terrain for block aligned x
+ * values. Since everything below the surface is solid, the object can not pass through the
+ * ground at any speed: horizontal moves are swept column by column and stop at the first column
+ * that is higher than the object's feet at the moment the object reaches it, and an object that
+ * ends up below the surface is put back on top of it. The engine's collisions are not involved,
+ * so terrain blocks can be purely visual.
+ */
+public class GroundSolver {
+    private final Function<Float, Float> groundHeightAt;
+
+    /**
+     * Creates a new solver.
+     *
+     * @param groundHeightAt Function mapping x to ground surface y, for block aligned x.
+     */
+    public GroundSolver(Function<Float, Float> groundHeightAt) {
+        this.groundHeightAt = groundHeightAt;
+    }
+
+    /**
+     * Resolves the move of an object during the last frame against the terrain. Walls stop the
+     * horizontal velocity, landing stops the vertical velocity.
+     *
+     * @param obj the object, already moved by the engine.
+     * @param previousTopLeft the top-left corner of the object before the move.
+     * @return true if the object stands on the ground after the move.
+     */
+    public boolean solve(GameObject obj, Vector2 previousTopLeft) {
+        Vector2 size = obj.getDimensions();
+        Vector2 topLeft = obj.getTopLeftCorner();
+        float previousBottom = previousTopLeft.y() + size.y();
+
+        float x = sweepX(previousTopLeft.x(), topLeft.x(), size.x(), previousBottom,
+                topLeft.y() + size.y());
+        if (x != topLeft.x()) {
+            obj.transform().setVelocityX(0);
+        }
+
+        float groundTop = groundTopUnder(x, size.x());
+        float y = topLeft.y();
+        boolean grounded = false;
+        if (y + size.y() >= groundTop && obj.getVelocity().y() >= 0) {
+            y = groundTop - size.y();
+            obj.transform().setVelocityY(0);
+            grounded = true;
+        }
+        if (x != topLeft.x() || y != topLeft.y()) {
+            obj.setTopLeftCorner(new Vector2(x, y));
+        }
+        return grounded;
+    }
+
+    /**
+     * @param x the x coordinate in world space.
+     * @return the y coordinate of the top of the terrain column containing x.
+     */
+    public float groundTopAt(float x) {
+        float column = (float) Math.floor(x / Block.SIZE) * Block.SIZE;
+        return (float) Math.floor(groundHeightAt.apply(column) / Block.SIZE) * Block.SIZE;
+    }
+
+    /**
+     * Moves the left edge of an object from fromX towards toX, one column at a time, and stops
+     * before the first column whose top is above the object's feet when its edge reaches the
+     * column. The feet move linearly from fromBottom to toBottom during the move, but never below
+     * the columns the object is over at that moment.
+     */
+    private float sweepX(float fromX, float toX, float width, float fromBottom, float toBottom) {
+        float dx = toX - fromX;
+        if (dx > 0) {
+            int lastColumn = columnOf(fromX + width - 1);
+            int targetColumn = columnOf(toX + width - 1);
+            for (int column = lastColumn + 1; column <= targetColumn; column++) {
+                float reachedX = column * Block.SIZE - width;
+                if (columnTop(column) < feetAt(reachedX, fromX, dx, width, fromBottom, toBottom)) {
+                    return reachedX;
+                }
+            }
+        } else if (dx < 0) {
+            int firstColumn = columnOf(fromX);
+            int targetColumn = columnOf(toX);
+            for (int column = firstColumn - 1; column >= targetColumn; column--) {
+                float reachedX = (column + 1) * Block.SIZE;
+                if (columnTop(column) < feetAt(reachedX, fromX, dx, width, fromBottom, toBottom)) {
+                    return reachedX;
+                }
+            }
+        }
+        return toX;
+    }
+
+    /**
+     * @return the bottom of the object when its left edge is at x, on the way from fromX to
+     * fromX + dx, standing on the columns it is over there if it would be below them.
+     */
+    private float feetAt(float x, float fromX, float dx, float width, float fromBottom,
+                         float toBottom) {
+        float t = Math.max(0f, Math.min(1f, (x - fromX) / dx));
+        float feet = fromBottom + t * (toBottom - fromBottom);
+        return Math.min(feet, groundTopUnder(x, width));
+    }
+
+    private float groundTopUnder(float x, float width) {
+        float top = Float.MAX_VALUE;
+        for (int column = columnOf(x); column <= columnOf(x + width - 1); column++) {
+            top = Math.min(top, columnTop(column));
+        }
+        return top;
+    }
+
+    private float columnTop(int column) {
+        return groundTopAt((float) column * Block.SIZE);
+    }
+
+    private static int columnOf(float x) {
+        return (int) Math.floor(x / Block.SIZE);
+    }
+}
@@ -0,0 +1,40 @@
+package pepse.world.chunks;
+
+import java.util.List;
+
+/**
+ * A chunk of the world: its compact data and the game objects created from it.
+ */
+public class Chunk {
+    private final int id;
+    private final ChunkData data;
+    private final List<LayeredObject> objects;
+
+    /**
+     * Creates a new chunk.
+     *
+     * @param id the id of the chunk.
+     * @param data the data the objects were created from.
+     * @param objects the objects of the chunk, paired with their layers.
+     */
+    public Chunk(int id, ChunkData data, List<LayeredObject> objects) {
+        this.id = id;
+        this.data = data;
+        this.objects = objects;
+    }
+
+    /**
+     * @return the id of the chunk
+     */
+    public int id() { return id; }
+
+    /**
+     * @return the data the objects were created from
+     */
+    public ChunkData data() { return data; }
+
+    /**
+     * @return the objects of the chunk
+     */
+    public List<LayeredObject> objects() { return objects; }
+}
@@ -0,0 +1,182 @@
+package pepse.world.chunks;
+
+import danogl.GameObject;
+import danogl.collisions.Layer;
+import pepse.world.StaticObject;
+import pepse.world.Terrain;
+import pepse.world.TerrainPack;
+import pepse.world.trees.Flora;
+import pepse.world.trees.FloraPack;
+import pepse.world.trees.Fruit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Turns chunk data into game objects, and game objects back into chunk data.
+ *
+ * The data of a chunk is generated by the {@link Terrain} and {@link Flora} generators and is
+ * small enough to cache and save. Game objects are only created from it when the chunk is about
+ * to enter the game, and are released to the generators' pools once it is no longer needed.
+ */
+public class ChunkBuilder {
+    private final Terrain terrain;
+    private final Flora flora;
+    private final int chunkBlocks;
+    private final int colliderLayer;
+    private final int fillLayer;
+    private final int foliageLayer;
+
+    /**
+     * Creates a new builder.
+     *
+     * @param terrain the terrain generator.
+     * @param flora the flora generator.
+     * @param chunkBlocks the width of a chunk, in blocks.
+     * @param colliderLayer the layer of the terrain blocks and colliders the avatar stands on.
+     * @param fillLayer the layer of terrain blocks that are only drawn.
+     * @param foliageLayer the layer of leaves and fruits, which are drawn but take no part in
+     *                     collisions.
+     */
+    public ChunkBuilder(Terrain terrain, Flora flora, int chunkBlocks, int colliderLayer,
+                        int fillLayer, int foliageLayer) {
+        this.terrain = terrain;
+        this.flora = flora;
+        this.chunkBlocks = chunkBlocks;
+        this.colliderLayer = colliderLayer;
+        this.fillLayer = fillLayer;
+        this.foliageLayer = foliageLayer;
+    }
+
+    /**
+     * Generates the data of a chunk. Safe to call from a worker thread.
+     *
+     * @param chunkId the id of the chunk.
+     * @return the data of the chunk.
+     */
+    public ChunkData generate(int chunkId) {
+        return generate(chunkId, () -> false);
+    }
+
+    /**
+     * Generates the data of a chunk, unless it is no longer needed. Safe to call from a worker
+     * thread.
+     *
+     * @param chunkId the id of the chunk.
+     * @param cancelled tells whether the chunk is no longer needed, checked after the terrain and
+     *                  after the flora.
+     * @return the data of the chunk, or null if it was cancelled.
+     */
+    public ChunkData generate(int chunkId, BooleanSupplier cancelled) {
+        // the span includes the column at the start of the next chunk
+        ChunkData data = new ChunkData(chunkId * chunkBlocks, chunkBlocks + 1, Terrain.TERRAIN_DEPTH);
+        terrain.generate(data);
+        if (cancelled.getAsBoolean()) return null;
+        flora.generate(data);
+        if (cancelled.getAsBoolean()) return null;
+        return data;
+    }
+
+    /**
+     * Creates the terrain blocks and flora objects of a chunk, paired with the layers they belong
+     * to. The objects are not added to the game, so this method is safe to call from a worker
+     * thread. The objects that move come after all the {@link StaticObject}s.
+     *
+     * @param chunkId the id of the chunk.
+     * @param data the data of the chunk.
+     * @return the chunk.
+     */
+    public Chunk build(int chunkId, ChunkData data) {
+        List<LayeredObject> created = new ArrayList<>();
+
+        TerrainPack terrainPack = terrain.createFromData(data);
+
+        for (GameObject collider : terrainPack.getColliders()) {
+            created.add(new LayeredObject(collider, colliderLayer));
+        }
+        for (GameObject fill : terrainPack.getFill()) {
+            created.add(new LayeredObject(fill, fillLayer));
+        }
+
+        FloraPack pack = flora.createFromData(data);
+
+        for (GameObject trunk : pack.getTrunks()) {
+            created.add(new LayeredObject(trunk, Layer.STATIC_OBJECTS));
+        }
+        for (GameObject leaf : pack.getLeaves()) {
+            created.add(new LayeredObject(leaf, foliageLayer));
+        }
+        for (GameObject fruit : pack.getFruits()) {
+            created.add(new LayeredObject(fruit, foliageLayer));
+        }
+        return new Chunk(chunkId, data, created);
+    }
+
+    /**
+     * Creates a distant view of a chunk: its terrain as a single texture and its trees as
+     * silhouettes, paired with the layers they belong to. Nothing in it collides, moves or can be
+     * picked up. Safe to call from a worker thread.
+     *
+     * @param chunkId the id of the chunk.
+     * @param data the data of the chunk.
+     * @return the distant view of the chunk.
+     */
+    public Chunk buildDistant(int chunkId, ChunkData data) {
+        List<LayeredObject> created = new ArrayList<>();
+        created.add(new LayeredObject(terrain.createTexture(data), fillLayer));
+
+        FloraPack pack = flora.createSilhouettesFromData(data);
+        for (GameObject trunk : pack.getTrunks()) {
+            created.add(new LayeredObject(trunk, fillLayer));
+        }
+        for (GameObject canopy : pack.getLeaves()) {
+            created.add(new LayeredObject(canopy, foliageLayer));
+        }
+        return new Chunk(chunkId, data, created);
+    }
+
+    /**
+     * Creates the outline of a chunk's terrain, the most distant view of a chunk. It is computed
+     * from the terrain's height function directly, without the chunk's data.
+     *
+     * @param chunkId the id of the chunk.
+     * @return the outline, paired with the layer it belongs to.
+     */
+    public LayeredObject buildOutline(int chunkId) {
+        // the same span as the chunk's data
+        return new LayeredObject(terrain.createOutline(chunkId * chunkBlocks, chunkBlocks + 1),
+                fillLayer);
+    }
+
+    /**
+     * Records the state of a chunk's objects that changes during the game in its data.
+     *
+     * @param chunk the chunk.
+     * @return true if the data changed.
+     */
+    public boolean captureState(Chunk chunk) {
+        // build lists the fruits last, in the order the data numbers them
+        List<GameObject> fruits = new ArrayList<>();
+        for (LayeredObject lo : chunk.objects()) {
+            if (lo.obj() instanceof Fruit) {
+                fruits.add(lo.obj());
+            }
+        }
+        return Flora.captureFruitState(chunk.data(), fruits);
+    }
+
+    /**
+     * Releases the objects of a chunk that is no longer in the game to the terrain and flora
+     * pools, so the next built chunks reuse them. The chunk's data stays valid.
+     *
+     * @param chunk the chunk.
+     */
+    public void recycle(Chunk chunk) {
+        for (LayeredObject lo : chunk.objects()) {
+            if (!terrain.recycle(lo.obj())) {
+                flora.recycle(lo.obj());
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package pepse.world.chunks;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * A bounded cache of recently unloaded chunks, kept with their objects ready to be added again.
+ *
+ * When the player walks back to a cached chunk its objects are reattached as they are, instead of
+ * generating the chunk again. The cache is limited both by the number of chunks and by the total
+ * number of objects, the least recently cached chunk is evicted first.
+ *
+ * All methods must be called from the game thread.
+ */
+public class ChunkCache {
+    private final int maxChunks;
+    private final int maxObjects;
+    private final Consumer<Chunk> onEvicted;
+    private final LinkedHashMap<Integer, Chunk> chunks = new LinkedHashMap<>();
+
+    private int objectCount = 0;
+    private long hits = 0;
+    private long misses = 0;
+
+    /**
+     * Creates a new empty cache.
+     *
+     * @param maxChunks maximal number of cached chunks.
+     * @param maxObjects maximal total number of objects in all cached chunks.
+     * @param onEvicted receives the chunks evicted from the cache.
+     */
+    public ChunkCache(int maxChunks, int maxObjects, Consumer<Chunk> onEvicted) {
+        this.maxChunks = maxChunks;
+        this.maxObjects = maxObjects;
+        this.onEvicted = onEvicted;
+    }
+
+    /**
+     * Caches a chunk whose objects are no longer in the game. An older copy of the same chunk is
+     * evicted.
+     *
+     * @param chunk the chunk to cache.
+     */
+    public void put(Chunk chunk) {
+        Chunk old = chunks.remove(chunk.id());
+        if (old != null) {
+            objectCount -= old.objects().size();
+            onEvicted.accept(old);
+        }
+        chunks.put(chunk.id(), chunk);
+        objectCount += chunk.objects().size();
+
+        Iterator<Map.Entry<Integer, Chunk>> it = chunks.entrySet().iterator();
+        while ((chunks.size() > maxChunks || objectCount > maxObjects) && it.hasNext()) {
+            Chunk evicted = it.next().getValue();
+            it.remove();
+            objectCount -= evicted.objects().size();
+            onEvicted.accept(evicted);
+        }
+    }
+
+    /**
+     * Takes a chunk out of the cache.
+     *
+     * @param chunkId the id of the chunk.
+     * @return the chunk, or null if it is not cached.
+     */
+    public Chunk take(int chunkId) {
+        Chunk chunk = chunks.remove(chunkId);
+        if (chunk == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        objectCount -= chunk.objects().size();
+        return chunk;
+    }
+
+    /**
+     * @return the cached chunks, from the least recently cached
+     */
+    public Collection<Chunk> chunks() { return Collections.unmodifiableCollection(chunks.values()); }
+
+    /**
+     * @return the number of cached chunks
+     */
+    public int size() { return chunks.size(); }
+
+    /**
+     * @return the total number of objects in the cached chunks
+     */
+    public int objectCount() { return objectCount; }
+
+    /**
+     * @return the number of lookups that found the chunk in the cache
+     */
+    public long hits() { return hits; }
+
+    /**
+     * @return the number of lookups that did not find the chunk in the cache
+     */
+    public long misses() { return misses; }
+}
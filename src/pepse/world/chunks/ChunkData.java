@@ -0,0 +1,156 @@
+package pepse.world.chunks;
+
+import java.util.BitSet;
+
+/**
+ * The compact description of a chunk, everything needed to create its objects again.
+ *
+ * Holds the surface height of every block column, the palette variant of every terrain block,
+ * the position and layout of every tree and the collected state of the chunk's fruits.
+ * Fruits are numbered in the order their trees and leaves are created.
+ */
+public class ChunkData {
+    private final int firstColumn;
+    private final int depth;
+    private final short[] columnTops;
+    private final byte[] blockVariants;
+
+    private final int[] treeX;
+    private final long[] treeLayouts;
+    private int treeCount = 0;
+
+    private final BitSet collectedFruits = new BitSet();
+    private float[] fruitRespawnSeconds = new float[0];
+
+    /**
+     * Creates empty data for a chunk.
+     *
+     * @param firstColumn index of the first block column of the chunk (x divided by the block size).
+     * @param columnCount number of block columns in the chunk.
+     * @param depth number of terrain blocks in each column.
+     */
+    public ChunkData(int firstColumn, int columnCount, int depth) {
+        this.firstColumn = firstColumn;
+        this.depth = depth;
+        this.columnTops = new short[columnCount];
+        this.blockVariants = new byte[columnCount * depth];
+        this.treeX = new int[columnCount];
+        this.treeLayouts = new long[columnCount];
+    }
+
+    /**
+     * @return index of the first block column of the chunk
+     */
+    public int firstColumn() { return firstColumn; }
+
+    /**
+     * @return number of block columns in the chunk
+     */
+    public int columnCount() { return columnTops.length; }
+
+    /**
+     * @return number of terrain blocks in each column
+     */
+    public int depth() { return depth; }
+
+    /**
+     * @param column index of the column within the chunk.
+     * @return the y coordinate of the top of the column's surface block.
+     */
+    public int columnTop(int column) { return columnTops[column]; }
+
+    /**
+     * @param column index of the column within the chunk.
+     * @param topY the y coordinate of the top of the column's surface block.
+     */
+    public void setColumnTop(int column, int topY) { columnTops[column] = (short) topY; }
+
+    /**
+     * @param column index of the column within the chunk.
+     * @param row index of the block within the column, 0 is the surface block.
+     * @return the palette variant of the block.
+     */
+    public int blockVariant(int column, int row) { return blockVariants[column * depth + row]; }
+
+    /**
+     * @param column index of the column within the chunk.
+     * @param row index of the block within the column, 0 is the surface block.
+     * @param variant the palette variant of the block.
+     */
+    public void setBlockVariant(int column, int row, int variant) {
+        blockVariants[column * depth + row] = (byte) variant;
+    }
+
+    /**
+     * @return the number of trees in the chunk
+     */
+    public int treeCount() { return treeCount; }
+
+    /**
+     * @param tree index of the tree.
+     * @return the x coordinate of the tree's trunk.
+     */
+    public int treeX(int tree) { return treeX[tree]; }
+
+    /**
+     * @param tree index of the tree.
+     * @return the packed layout of the tree, as created by the tree generator.
+     */
+    public long treeLayout(int tree) { return treeLayouts[tree]; }
+
+    /**
+     * Adds a tree. Trees are kept in the order they are added.
+     *
+     * @param x the x coordinate of the tree's trunk.
+     * @param layout the packed layout of the tree.
+     */
+    public void addTree(int x, long layout) {
+        treeX[treeCount] = x;
+        treeLayouts[treeCount] = layout;
+        treeCount++;
+    }
+
+    /**
+     * @param fruit index of the fruit in the chunk.
+     * @return true if the fruit was collected and did not respawn yet.
+     */
+    public boolean isFruitCollected(int fruit) { return collectedFruits.get(fruit); }
+
+    /**
+     * @param fruit index of the fruit in the chunk.
+     * @return seconds left until a collected fruit respawns.
+     */
+    public float fruitRespawnSeconds(int fruit) {
+        return fruit < fruitRespawnSeconds.length ? fruitRespawnSeconds[fruit] : 0f;
+    }
+
+    /**
+     * Records the state of a fruit.
+     *
+     * @param fruit index of the fruit in the chunk.
+     * @param collected true if the fruit was collected and did not respawn yet.
+     * @param respawnSeconds seconds left until the fruit respawns, ignored if it is not collected.
+     * @return true if the recorded state changed.
+     */
+    public boolean setFruitState(int fruit, boolean collected, float respawnSeconds) {
+        float seconds = collected ? respawnSeconds : 0f;
+        if (collected == collectedFruits.get(fruit) && seconds == fruitRespawnSeconds(fruit)) {
+            return false;
+        }
+        collectedFruits.set(fruit, collected);
+        if (fruit >= fruitRespawnSeconds.length) {
+            float[] grown = new float[Math.max(fruit + 1, fruitRespawnSeconds.length * 2)];
+            System.arraycopy(fruitRespawnSeconds, 0, grown, 0, fruitRespawnSeconds.length);
+            fruitRespawnSeconds = grown;
+        }
+        fruitRespawnSeconds[fruit] = seconds;
+        return true;
+    }
+
+    /**
+     * @return the fruits that are collected, by index
+     */
+    public BitSet collectedFruits() {
+        return (BitSet) collectedFruits.clone();
+    }
+}
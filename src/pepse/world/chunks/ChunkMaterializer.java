@@ -0,0 +1,368 @@
+package pepse.world.chunks;
+
+import pepse.diagnostics.ChunkLoadEvent;
+import pepse.world.StaticObject;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Adds and removes the objects of chunks incrementally, spread over several frames.
+ *
+ * Every chunk that is being attached or detached has a job. Each frame {@link #step(int, long)}
+ * works on the jobs, nearest chunk first, until the frame's time budget is used up. A job always
+ * keeps a prefix of the chunk's object list attached, so a chunk that is detached while it is
+ * still being attached (or the other way around) simply turns around from where it stopped.
+ * Once all objects of a detached chunk are out of the game, a listener is told so it can reuse them.
+ * Once all objects of an attached chunk are in the game, a {@link ChunkLoadEvent} is emitted with
+ * the time spent adding them.
+ *
+ * The moving objects at the end of an attached chunk's list (everything after its last
+ * {@link StaticObject}) can be put to sleep and woken again the same way, within the same budget,
+ * through {@link ObjectSink#sleep} and {@link ObjectSink#wake}. A chunk that is detached while
+ * some of its objects sleep drops those with {@link ObjectSink#removeAsleep} right away, and only
+ * its awake objects are removed over the frames.
+ *
+ * All methods must be called from the game thread.
+ */
+public class ChunkMaterializer {
+
+    /**
+     * Called once every object of a detached chunk is out of the game.
+     */
+    public interface DetachListener {
+
+        /**
+         * @param chunk the detached chunk, none of its objects is in the game anymore.
+         */
+        void onDetached(Chunk chunk);
+    }
+
+    private static class Job {
+        final Chunk chunk;
+        final int chunkId;
+        final List<LayeredObject> objects;
+        int attached;
+        boolean attaching;
+
+        /**
+         * true for a job that puts the chunk's moving objects to sleep (detaching) or wakes them
+         * (attaching), false for a job that adds or removes the chunk's objects
+         */
+        final boolean sleepJob;
+
+        /**
+         * distance in chunks from the avatar's chunk, as of the last step
+         */
+        int distance;
+
+        /**
+         * the load event of an attaching job, from the start of the attach until the last object
+         * is in the game, and the time spent adding objects meanwhile
+         */
+        ChunkLoadEvent loadEvent;
+        String source;
+        long attachNanos;
+
+        Job(Chunk chunk, int attached, boolean attaching) {
+            this(chunk, chunk.objects(), attached, attaching, false);
+        }
+
+        Job(Chunk chunk, List<LayeredObject> objects, int attached, boolean attaching,
+            boolean sleepJob) {
+            this.chunk = chunk;
+            this.chunkId = chunk.id();
+            this.objects = objects;
+            this.attached = attached;
+            this.attaching = attaching;
+            this.sleepJob = sleepJob;
+        }
+
+        void startLoad(String source) {
+            this.source = source;
+            attachNanos = 0;
+            loadEvent = new ChunkLoadEvent();
+            loadEvent.begin();
+        }
+
+        boolean isDone() {
+            return attaching ? attached == objects.size() : attached == 0;
+        }
+    }
+
+    /**
+     * attaching jobs first, each nearest to the avatar first
+     */
+    private static final Comparator<Job> JOB_ORDER =
+            Comparator.comparing((Job job) -> !job.attaching).thenComparingInt(job -> job.distance);
+
+    private final ObjectSink sink;
+    private final DetachListener detachListener;
+    private final Map<Integer, Job> jobs = new HashMap<>();
+
+    /**
+     * the sleep jobs of chunks with moving objects that sleep or are being put to sleep or woken.
+     * a job stays here while it is done sleeping, until the chunk is woken or detached
+     */
+    private final Map<Integer, Job> sleepJobs = new HashMap<>();
+    private final List<Job> order = new ArrayList<>();
+
+    /**
+     * Creates a new materializer.
+     *
+     * @param sink where objects are added to and removed from.
+     * @param detachListener told about every chunk whose objects were all removed.
+     */
+    public ChunkMaterializer(ObjectSink sink, DetachListener detachListener) {
+        this.sink = sink;
+        this.detachListener = detachListener;
+    }
+
+    /**
+     * Starts attaching a chunk whose objects are not in the game yet. If an older copy of the chunk
+     * is still being detached, that copy is removed first.
+     *
+     * @param chunk the chunk to attach.
+     * @param source where the chunk came from, reported in its load event.
+     */
+    public void attach(Chunk chunk, String source) {
+        flush(chunk.id());
+        Job job = new Job(chunk, 0, true);
+        job.startLoad(source);
+        jobs.put(chunk.id(), job);
+    }
+
+    /**
+     * Turns a chunk that is still being detached back around.
+     *
+     * @param chunkId the id of the chunk.
+     * @param source reported in the chunk's load event.
+     * @return the chunk, or null if the chunk is not being detached.
+     */
+    public Chunk resumeAttach(int chunkId, String source) {
+        Job job = jobs.get(chunkId);
+        if (job == null || job.attaching) {
+            return null;
+        }
+        job.attaching = true;
+        job.startLoad(source);
+        return job.chunk;
+    }
+
+    /**
+     * Starts detaching a chunk. If the chunk is still being attached, only the objects already in
+     * the game are removed.
+     *
+     * @param chunk the chunk to detach.
+     */
+    public void detach(Chunk chunk) {
+        Job job = jobs.get(chunk.id());
+        if (job != null) {
+            job.attaching = false;
+            return;
+        }
+        int attached = chunk.objects().size();
+        Job sleeping = sleepJobs.remove(chunk.id());
+        if (sleeping != null) {
+            // the objects after the awake prefix are out of the game already
+            for (int i = sleeping.attached; i < sleeping.objects.size(); i++) {
+                LayeredObject lo = sleeping.objects.get(i);
+                sink.removeAsleep(lo.obj(), lo.layer());
+            }
+            attached -= sleeping.objects.size() - sleeping.attached;
+        }
+        jobs.put(chunk.id(), new Job(chunk, attached, false));
+    }
+
+    /**
+     * Starts putting the moving objects of a chunk to sleep. The chunk's objects must all be in
+     * the game, see {@link #isPending(int)}.
+     *
+     * @param chunk the chunk.
+     */
+    public void sleep(Chunk chunk) {
+        Job job = sleepJobs.get(chunk.id());
+        if (job != null) {
+            job.attaching = false;
+            return;
+        }
+        List<LayeredObject> objects = chunk.objects();
+        int firstMoving = objects.size();
+        while (firstMoving > 0 && !(objects.get(firstMoving - 1).obj() instanceof StaticObject)) {
+            firstMoving--;
+        }
+        List<LayeredObject> moving = objects.subList(firstMoving, objects.size());
+        if (!moving.isEmpty()) {
+            sleepJobs.put(chunk.id(), new Job(chunk, moving, moving.size(), false, true));
+        }
+    }
+
+    /**
+     * Starts waking the moving objects of a chunk that were put to sleep. Does nothing if none
+     * sleeps.
+     *
+     * @param chunk the chunk.
+     */
+    public void wake(Chunk chunk) {
+        Job job = sleepJobs.get(chunk.id());
+        if (job != null) {
+            job.attaching = true;
+        }
+    }
+
+    /**
+     * @return the number of objects that sleep, they are out of the game's update set.
+     */
+    public int sleepingObjects() {
+        int sleeping = 0;
+        for (Job job : sleepJobs.values()) {
+            sleeping += job.objects.size() - job.attached;
+        }
+        return sleeping;
+    }
+
+    /**
+     * Finishes the jobs of a chunk right away, regardless of the budget: the attach or detach of
+     * its objects, and the waking or sleeping of its moving objects.
+     *
+     * @param chunkId the id of the chunk.
+     */
+    public void flush(int chunkId) {
+        Job job = jobs.get(chunkId);
+        if (job != null) {
+            long start = System.nanoTime();
+            while (!job.isDone()) {
+                advance(job);
+            }
+            job.attachNanos += System.nanoTime() - start;
+            finish(job);
+        }
+        Job sleeping = sleepJobs.get(chunkId);
+        if (sleeping != null) {
+            while (!sleeping.isDone()) {
+                advance(sleeping);
+            }
+            finish(sleeping);
+        }
+    }
+
+    /**
+     * @param chunkId the id of a chunk.
+     * @return true if the chunk still has objects to attach or detach.
+     */
+    public boolean isPending(int chunkId) {
+        return jobs.containsKey(chunkId);
+    }
+
+    /**
+     * @return the chunks that are being detached, some of their objects may still be in the game.
+     */
+    public List<Chunk> detachingChunks() {
+        List<Chunk> chunks = new ArrayList<>();
+        for (Job job : jobs.values()) {
+            if (!job.attaching) {
+                chunks.add(job.chunk);
+            }
+        }
+        return chunks;
+    }
+
+    /**
+     * @return the number of chunks that still have objects to attach or detach.
+     */
+    public int pendingChunks() {
+        return jobs.size();
+    }
+
+    /**
+     * Works on the pending jobs until the budget is used up. Attaching and waking chunks come
+     * first, nearest to {@code centerChunk} first, then detaching and sleeping chunks. At least one
+     * object is handled per call so the jobs always make progress.
+     *
+     * @param centerChunk the chunk the avatar is in.
+     * @param budgetNanos time budget for this call, in nanoseconds.
+     */
+    public void step(int centerChunk, long budgetNanos) {
+        if (jobs.isEmpty() && sleepJobs.isEmpty()) {
+            return;
+        }
+        long deadline = System.nanoTime() + budgetNanos;
+
+        order.clear();
+        for (Job job : jobs.values()) {
+            job.distance = Math.abs(job.chunkId - centerChunk);
+            order.add(job);
+        }
+        for (Job job : sleepJobs.values()) {
+            if (!job.isDone()) {
+                job.distance = Math.abs(job.chunkId - centerChunk);
+                order.add(job);
+            }
+        }
+        order.sort(JOB_ORDER);
+
+        for (Job job : order) {
+            long start = System.nanoTime();
+            while (!job.isDone()) {
+                advance(job);
+                long now = System.nanoTime();
+                if (now >= deadline) {
+                    job.attachNanos += now - start;
+                    if (job.isDone()) {
+                        finish(job);
+                    }
+                    order.clear();
+                    return;
+                }
+            }
+            job.attachNanos += System.nanoTime() - start;
+            finish(job);
+        }
+        order.clear();
+    }
+
+    private void finish(Job job) {
+        if (job.sleepJob) {
+            // a chunk whose objects all sleep keeps its job until it is woken or detached
+            if (job.attaching) {
+                sleepJobs.remove(job.chunkId);
+            }
+            return;
+        }
+        jobs.remove(job.chunkId);
+        if (!job.attaching) {
+            detachListener.onDetached(job.chunk);
+            return;
+        }
+        ChunkLoadEvent event = job.loadEvent;
+        event.end();
+        if (event.shouldCommit()) {
+            event.chunkId = job.chunkId;
+            event.source = job.source;
+            event.objectCount = job.objects.size();
+            event.attachTime = job.attachNanos;
+            event.commit();
+        }
+    }
+
+    private void advance(Job job) {
+        if (job.attaching) {
+            LayeredObject lo = job.objects.get(job.attached++);
+            if (job.sleepJob) {
+                sink.wake(lo.obj(), lo.layer());
+            } else {
+                sink.add(lo.obj(), lo.layer());
+            }
+        } else {
+            LayeredObject lo = job.objects.get(--job.attached);
+            if (job.sleepJob) {
+                sink.sleep(lo.obj(), lo.layer());
+            } else {
+                sink.remove(lo.obj(), lo.layer());
+            }
+        }
+    }
+}
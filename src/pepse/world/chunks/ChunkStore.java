@@ -0,0 +1,337 @@
+package pepse.world.chunks;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Keeps the data of generated chunks on disk, so a chunk the player visited before is read back
+ * instead of generated again, with its fruits as the player left them.
+ *
+ * Chunks are grouped in region files of {@link #REGION_CHUNKS} chunks each. A region file starts
+ * with a header (magic number, format version and a table with the offset, length and CRC32 of
+ * every chunk record) followed by the records. Files of another format version, or with a broken
+ * header, are read as empty and their chunks are generated again. Such a file is only replaced
+ * once a chunk of it is written.
+ *
+ * Reads map the region file and may be called from any thread. Writes are encoded on the calling
+ * thread and written to the file by a single background thread, a chunk waiting to be written is
+ * still found by {@link #read(int)}.
+ */
+public class ChunkStore {
+    /**
+     * number of chunks in a single region file
+     */
+    public static final int REGION_CHUNKS = 32;
+
+    private static final int MAGIC = 0x50455053;
+    /**
+     * bumped whenever the record layout or the generation of the data changes
+     */
+    private static final int FORMAT_VERSION = 2;
+
+    private static final int ENTRY_BYTES = 3 * Integer.BYTES;
+    private static final int HEADER_BYTES = 3 * Integer.BYTES + REGION_CHUNKS * ENTRY_BYTES;
+
+    /**
+     * maximal number of region files kept open at once
+     */
+    private static final int MAX_OPEN_REGIONS = 8;
+
+    private static final Logger LOGGER = Logger.getLogger(ChunkStore.class.getName());
+
+    /**
+     * An open region file.
+     */
+    private static class Region {
+        private final FileChannel channel;
+        private MappedByteBuffer map;
+
+        private Region(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        private ByteBuffer map() throws IOException {
+            long size = channel.size();
+            if (map == null || map.capacity() != size) {
+                map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            }
+            return map.duplicate();
+        }
+    }
+
+    private final Path directory;
+    private final Map<Integer, Region> regions = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Region> eldest) {
+            if (size() <= MAX_OPEN_REGIONS) {
+                return false;
+            }
+            closeQuietly(eldest.getValue());
+            return true;
+        }
+    };
+    private final Map<Integer, byte[]> pendingWrites = new ConcurrentHashMap<>();
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "pepse-chunk-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Creates a store keeping its region files in the given directory, which is created if needed.
+     *
+     * @param directory the directory of the region files.
+     */
+    public ChunkStore(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Reads the data of a chunk.
+     *
+     * @param chunkId the id of the chunk.
+     * @return the data of the chunk, or null if the chunk was never stored or its record can not
+     * be read, in which case the chunk should be generated again.
+     */
+    public ChunkData read(int chunkId) {
+        byte[] pending = pendingWrites.get(chunkId);
+        if (pending != null) {
+            return decode(ByteBuffer.wrap(pending));
+        }
+        synchronized (regions) {
+            try {
+                Region region = region(Math.floorDiv(chunkId, REGION_CHUNKS), false);
+                if (region == null) {
+                    return null;
+                }
+                ByteBuffer file = region.map();
+                int entry = entryPosition(chunkId);
+                int offset = file.getInt(entry);
+                int length = file.getInt(entry + Integer.BYTES);
+                int crc = file.getInt(entry + 2 * Integer.BYTES);
+                if (length == 0 || offset + (long) length > file.capacity()) {
+                    return null;
+                }
+                byte[] record = new byte[length];
+                file.position(offset);
+                file.get(record);
+                if (crc(record) != crc) {
+                    return null;
+                }
+                return decode(ByteBuffer.wrap(record));
+            } catch (IOException e) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Stores the data of a chunk, replacing what was stored for it before. The data is encoded
+     * right away and may be changed after this call. A write after {@link #close()} is logged and
+     * dropped.
+     *
+     * @param chunkId the id of the chunk.
+     * @param data the data of the chunk.
+     */
+    public void write(int chunkId, ChunkData data) {
+        byte[] record = encode(data);
+        pendingWrites.put(chunkId, record);
+        try {
+            writer.execute(() -> {
+                synchronized (regions) {
+                    try {
+                        writeRecord(chunkId, record);
+                    } catch (IOException e) {
+                        // the chunk is generated again the next time it is needed
+                        LOGGER.log(Level.WARNING, "failed to save chunk " + chunkId, e);
+                    }
+                }
+                pendingWrites.remove(chunkId, record);
+            });
+        } catch (RejectedExecutionException e) {
+            pendingWrites.remove(chunkId, record);
+            LOGGER.warning("chunk " + chunkId + " not saved, the store is closed");
+        }
+    }
+
+    /**
+     * Waits for the pending writes to finish and closes the region files.
+     * Later writes are dropped.
+     */
+    public void close() {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (regions) {
+            regions.values().forEach(ChunkStore::closeQuietly);
+            regions.clear();
+        }
+    }
+
+    private void writeRecord(int chunkId, byte[] record) throws IOException {
+        Region region = region(Math.floorDiv(chunkId, REGION_CHUNKS), true);
+        int entry = entryPosition(chunkId);
+
+        ByteBuffer old = ByteBuffer.allocate(ENTRY_BYTES);
+        region.channel.read(old, entry);
+        int oldOffset = old.getInt(0);
+        int oldLength = old.getInt(Integer.BYTES);
+
+        // a record that fits where the old one was overwrites it, otherwise it is appended
+        long offset = oldOffset > 0 && record.length <= oldLength ? oldOffset : region.channel.size();
+        region.channel.write(ByteBuffer.wrap(record), offset);
+
+        ByteBuffer newEntry = ByteBuffer.allocate(ENTRY_BYTES)
+                .putInt((int) offset).putInt(record.length).putInt(crc(record));
+        newEntry.flip();
+        region.channel.write(newEntry, entry);
+    }
+
+    private Region region(int regionIndex, boolean create) throws IOException {
+        Region region = regions.get(regionIndex);
+        if (region != null) {
+            if (region.channel.isOpen()) {
+                return region;
+            }
+            // closed under us, e.g. by an interrupt during a read, so it is opened again
+            regions.remove(regionIndex);
+        }
+        Path path = directory.resolve("region_" + regionIndex + ".dat");
+        if (!create && !Files.exists(path)) {
+            return null;
+        }
+        Files.createDirectories(directory);
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (!hasValidHeader(channel)) {
+            if (!create) {
+                // left as it is until a chunk of it is written
+                channel.close();
+                return null;
+            }
+            if (channel.size() > 0) {
+                LOGGER.warning("discarding region file of another format: " + path);
+            }
+            channel.truncate(0);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES)
+                    .putInt(MAGIC).putInt(FORMAT_VERSION).putInt(REGION_CHUNKS);
+            header.position(0);
+            channel.write(header, 0);
+        }
+        region = new Region(channel);
+        regions.put(regionIndex, region);
+        return region;
+    }
+
+    private static boolean hasValidHeader(FileChannel channel) throws IOException {
+        if (channel.size() < HEADER_BYTES) {
+            return false;
+        }
+        ByteBuffer header = ByteBuffer.allocate(3 * Integer.BYTES);
+        channel.read(header, 0);
+        return header.getInt(0) == MAGIC
+                && header.getInt(Integer.BYTES) == FORMAT_VERSION
+                && header.getInt(2 * Integer.BYTES) == REGION_CHUNKS;
+    }
+
+    private static int entryPosition(int chunkId) {
+        return 3 * Integer.BYTES + Math.floorMod(chunkId, REGION_CHUNKS) * ENTRY_BYTES;
+    }
+
+    private static int crc(byte[] record) {
+        CRC32 crc = new CRC32();
+        crc.update(record);
+        return (int) crc.getValue();
+    }
+
+    private static void closeQuietly(Region region) {
+        try {
+            region.channel.close();
+        } catch (IOException e) {
+            // nothing left to do with the file
+        }
+    }
+
+    private static byte[] encode(ChunkData data) {
+        int columns = data.columnCount();
+        int depth = data.depth();
+        BitSet collected = data.collectedFruits();
+        byte[] collectedBytes = collected.toByteArray();
+
+        int size = Integer.BYTES + 2 * Short.BYTES
+                + columns * Short.BYTES + columns * depth
+                + Short.BYTES + data.treeCount() * (Integer.BYTES + Long.BYTES)
+                + Short.BYTES + collectedBytes.length + collected.cardinality() * Float.BYTES;
+        ByteBuffer out = ByteBuffer.allocate(size);
+
+        out.putInt(data.firstColumn()).putShort((short) columns).putShort((short) depth);
+        for (int column = 0; column < columns; column++) {
+            out.putShort((short) data.columnTop(column));
+        }
+        for (int column = 0; column < columns; column++) {
+            for (int i = 0; i < depth; i++) {
+                out.put((byte) data.blockVariant(column, i));
+            }
+        }
+        out.putShort((short) data.treeCount());
+        for (int tree = 0; tree < data.treeCount(); tree++) {
+            out.putInt(data.treeX(tree)).putLong(data.treeLayout(tree));
+        }
+        out.putShort((short) collectedBytes.length).put(collectedBytes);
+        for (int fruit = collected.nextSetBit(0); fruit >= 0; fruit = collected.nextSetBit(fruit + 1)) {
+            out.putFloat(data.fruitRespawnSeconds(fruit));
+        }
+        return out.array();
+    }
+
+    private static ChunkData decode(ByteBuffer in) {
+        try {
+            int firstColumn = in.getInt();
+            int columns = in.getShort();
+            int depth = in.getShort();
+            ChunkData data = new ChunkData(firstColumn, columns, depth);
+            for (int column = 0; column < columns; column++) {
+                data.setColumnTop(column, in.getShort());
+            }
+            for (int column = 0; column < columns; column++) {
+                for (int i = 0; i < depth; i++) {
+                    data.setBlockVariant(column, i, in.get());
+                }
+            }
+            int treeCount = in.getShort();
+            for (int tree = 0; tree < treeCount; tree++) {
+                data.addTree(in.getInt(), in.getLong());
+            }
+            byte[] collectedBytes = new byte[in.getShort()];
+            in.get(collectedBytes);
+            BitSet collected = BitSet.valueOf(collectedBytes);
+            for (int fruit = collected.nextSetBit(0); fruit >= 0; fruit = collected.nextSetBit(fruit + 1)) {
+                data.setFruitState(fruit, true, in.getFloat());
+            }
+            return data;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException
+                 | NegativeArraySizeException e) {
+            return null;
+        }
+    }
+}
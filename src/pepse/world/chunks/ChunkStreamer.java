@@ -0,0 +1,232 @@
+package pepse.world.chunks;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Generates chunks on a pool of background worker threads.
+ *
+ * Chunks are requested by id from the game thread. A worker runs the supplied generator and hands
+ * the finished chunk over through a bounded queue, the game thread then drains that queue with
+ * {@link #poll()} and is the only one that adds objects to the engine.
+ * Requests that are no longer needed can be cancelled. A worker that already started on a
+ * cancelled chunk is not interrupted, since that would close the file channels of the
+ * {@link ChunkStore} it may be reading. Instead the generator checks the request between the
+ * phases of its work and gives up early; a chunk it finished anyway is dropped.
+ *
+ * Every request gets its own token, so the result of a cancelled request is never taken for the
+ * result of a later request of the same chunk. Dropped chunks are handed back through a callback,
+ * so their objects return to the pools they came from. A chunk whose generation failed is logged
+ * and forgotten, so it is requested again.
+ *
+ * All methods must be called from the game thread.
+ */
+public class ChunkStreamer {
+    private static final Logger LOGGER = Logger.getLogger(ChunkStreamer.class.getName());
+
+    /**
+     * Creates chunks on the worker threads.
+     */
+    public interface Generator {
+
+        /**
+         * @param chunkId the id of the chunk to create.
+         * @param cancelled tells whether the request was cancelled meanwhile, checked between the
+         *                  phases of the work.
+         * @return the chunk, or null if the request was cancelled before it was done.
+         */
+        Chunk generate(int chunkId, BooleanSupplier cancelled);
+    }
+
+    /**
+     * A chunk whose generation finished on a worker thread.
+     */
+    public static class GeneratedChunk {
+        private final int chunkId;
+        private final long token;
+        private final Chunk chunk;
+        private final RuntimeException failure;
+
+        private GeneratedChunk(int chunkId, long token, Chunk chunk, RuntimeException failure) {
+            this.chunkId = chunkId;
+            this.token = token;
+            this.chunk = chunk;
+            this.failure = failure;
+        }
+
+        /**
+         * @return the id of the generated chunk
+         */
+        public int chunkId() { return chunkId; }
+
+        /**
+         * @return the generated chunk
+         */
+        public Chunk chunk() { return chunk; }
+    }
+
+    /**
+     * a pending request of a chunk
+     */
+    private static class Request {
+        private final long token;
+        private Future<?> future;
+
+        /**
+         * set on the game thread, read by the worker generating the chunk
+         */
+        private volatile boolean cancelled = false;
+
+        private Request(long token) {
+            this.token = token;
+        }
+    }
+
+    private final Generator generator;
+    private final Consumer<Chunk> onDropped;
+    private final ExecutorService workers;
+    private final BlockingQueue<GeneratedChunk> ready;
+    private final Map<Integer, Request> pending = new HashMap<>();
+    private long nextToken = 0;
+
+    /**
+     * Creates a new streamer.
+     *
+     * @param generator creates a chunk given its id, called on worker threads.
+     * @param onDropped receives the finished chunks of cancelled requests, on the game thread,
+     *                  e.g. to recycle their objects.
+     * @param workerCount number of background worker threads.
+     * @param queueCapacity maximal number of finished chunks waiting for the game thread. workers
+     *                      block once the queue is full.
+     */
+    public ChunkStreamer(Generator generator, Consumer<Chunk> onDropped, int workerCount,
+                         int queueCapacity) {
+        this.generator = generator;
+        this.onDropped = onDropped;
+        this.ready = new ArrayBlockingQueue<>(queueCapacity);
+        this.workers = Executors.newFixedThreadPool(workerCount, runnable -> {
+            Thread thread = new Thread(runnable, "pepse-chunk-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Schedules a chunk for background generation, unless it is already pending.
+     * Chunks are generated roughly in request order.
+     *
+     * @param chunkId the id of the chunk to generate.
+     */
+    public void request(int chunkId) {
+        if (pending.containsKey(chunkId)) {
+            return;
+        }
+        Request request = new Request(nextToken++);
+        request.future = workers.submit(() -> generate(chunkId, request));
+        pending.put(chunkId, request);
+    }
+
+    /**
+     * @param chunkId the id of a chunk.
+     * @return true if the chunk was requested and was not handed over yet.
+     */
+    public boolean isPending(int chunkId) {
+        return pending.containsKey(chunkId);
+    }
+
+    /**
+     * Cancels the generation of a single chunk. A result that was already queued is dropped
+     * by {@link #poll()}.
+     *
+     * @param chunkId the id of the chunk to cancel.
+     */
+    public void cancel(int chunkId) {
+        Request request = pending.remove(chunkId);
+        if (request != null) {
+            cancel(request);
+        }
+    }
+
+    /**
+     * Cancels every pending chunk outside the inclusive range [minChunk, maxChunk].
+     *
+     * @param minChunk the lowest chunk id to keep.
+     * @param maxChunk the highest chunk id to keep.
+     */
+    public void cancelOutside(int minChunk, int maxChunk) {
+        Iterator<Map.Entry<Integer, Request>> it = pending.entrySet().iterator();
+        while (it.hasNext()) {
+            var entry = it.next();
+            int chunkId = entry.getKey();
+            if (chunkId < minChunk || chunkId > maxChunk) {
+                cancel(entry.getValue());
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Removes a request from the queue, or tells the worker already generating it to stop.
+     */
+    private static void cancel(Request request) {
+        request.cancelled = true;
+        request.future.cancel(false);
+    }
+
+    /**
+     * Takes the next finished chunk, if any. Results of cancelled requests are skipped and
+     * handed to the drop callback. Failed requests are logged and skipped, so they can be
+     * requested again.
+     *
+     * @return the next finished chunk, or null if none is ready.
+     */
+    public GeneratedChunk poll() {
+        GeneratedChunk chunk;
+        while ((chunk = ready.poll()) != null) {
+            Request request = pending.get(chunk.chunkId());
+            if (request != null && request.token == chunk.token) {
+                pending.remove(chunk.chunkId());
+                if (chunk.failure == null) {
+                    return chunk;
+                }
+                LOGGER.log(Level.WARNING, "failed to generate chunk " + chunk.chunkId(),
+                        chunk.failure);
+                continue;
+            }
+            if (chunk.chunk != null) {
+                onDropped.accept(chunk.chunk);
+            }
+        }
+        return null;
+    }
+
+    private void generate(int chunkId, Request request) {
+        GeneratedChunk result;
+        try {
+            Chunk chunk = generator.generate(chunkId, () -> request.cancelled);
+            if (chunk == null) {
+                // cancelled, there is nothing to hand over
+                return;
+            }
+            result = new GeneratedChunk(chunkId, request.token, chunk, null);
+        } catch (RuntimeException e) {
+            result = new GeneratedChunk(chunkId, request.token, null, e);
+        }
+        try {
+            ready.put(result);
+        } catch (InterruptedException e) {
+            // the workers are shutting down, the result is not needed anymore
+            Thread.currentThread().interrupt();
+        }
+    }
+}
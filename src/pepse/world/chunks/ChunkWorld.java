@@ -0,0 +1,391 @@
+package pepse.world.chunks;
+
+import pepse.diagnostics.ChunkGenerateEvent;
+import pepse.diagnostics.ChunkUnloadEvent;
+import pepse.diagnostics.PepseMetrics;
+import pepse.world.StaticObject;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Keeps the chunks around the player in the game.
+ *
+ * Chunks ahead of the player are generated on background workers, added to the game within a
+ * time budget per frame and removed again once the player is far away. Removed chunks are cached
+ * for a while in case the player walks back, and their data is saved to a {@link ChunkStore}.
+ *
+ * Beyond the loaded chunks, an optional {@link DistantChunks} shows more of the world in less
+ * detail. A chunk being unloaded is handed to it first, and it keeps showing a chunk being loaded
+ * until the chunk's objects are all in the game.
+ *
+ * Loaded chunks the camera is far from are put to sleep: their moving objects (everything but
+ * {@link StaticObject}s) are taken out of the game's update set through
+ * {@link ObjectSink#sleep} until the camera comes close again. They keep their place in the wind,
+ * the timers and the triggers, so a fruit's respawn timer keeps running on the game's timing
+ * wheel and the fruit is up to date when it wakes. Chunks wake closer to the camera than they
+ * fall asleep, so a camera standing near the edge does not toggle them every frame, and both go
+ * through the same per-frame budget as loading.
+ *
+ * The world does not depend on the engine's object collection, objects are added and removed
+ * through an {@link ObjectSink}. All methods must be called from the game thread.
+ */
+public class ChunkWorld {
+    /**
+     * how far ahead (in seconds of avatar movement) chunks are generated in the background
+     */
+    private static final float PREFETCH_SECONDS = 1.5f;
+    private static final int CHUNK_WORKERS =
+            Math.max(1, Math.min(2, Runtime.getRuntime().availableProcessors() - 1));
+    private static final int READY_QUEUE_CAPACITY = 4;
+
+    /**
+     * time (in milliseconds) each frame may spend adding and removing chunk objects
+     */
+    private static final float MATERIALIZE_BUDGET_MILLIS = 2f;
+
+    /**
+     * limits of the cache of unloaded chunks that are kept ready to be added again
+     */
+    private static final int CHUNK_CACHE_MAX_CHUNKS = 16;
+    private static final int CHUNK_CACHE_MAX_OBJECTS = 4000;
+
+    /**
+     * chunks further than this many chunk widths outside the camera view sleep, and sleeping
+     * chunks closer than the wake margin wake up
+     */
+    private static final float SLEEP_MARGIN_CHUNKS = 1f;
+    private static final float WAKE_MARGIN_CHUNKS = 0.5f;
+
+    /**
+     * sources of loaded chunks, as reported to JFR
+     */
+    private static final String GENERATED = "generated";
+    private static final String CACHED = "cache";
+    private static final String RESUMED = "resumed";
+
+    private final ChunkBuilder builder;
+    private final ChunkStore store;
+    private final int chunkWidth;
+    private final int loadRadiusChunks;
+    private final int unloadExtraChunks;
+    private final ChunkStreamer streamer;
+    private final ChunkMaterializer materializer;
+    private final ChunkCache cache;
+    private final DistantChunks distantChunks;
+
+    private final Map<Integer, Chunk> loadedChunks = new HashMap<>();
+
+    /**
+     * Creates a new world with no chunks loaded.
+     *
+     * @param builder creates the data and objects of chunks.
+     * @param store saves the data of chunks.
+     * @param sink receives the objects added to and removed from the game.
+     * @param chunkWidth the width of a chunk, in pixels.
+     * @param loadRadiusChunks number of chunks loaded on each side of the player.
+     * @param unloadExtraChunks number of chunks past the load radius that are kept before
+     *                          unloading, so walking back and forth does not reload chunks.
+     */
+    public ChunkWorld(ChunkBuilder builder, ChunkStore store, ObjectSink sink, int chunkWidth,
+                      int loadRadiusChunks, int unloadExtraChunks) {
+        this(builder, store, sink, chunkWidth, loadRadiusChunks, unloadExtraChunks, null);
+    }
+
+    /**
+     * Creates a new world with no chunks loaded, that shows the chunks beyond the loaded ones in
+     * less detail.
+     *
+     * @param builder creates the data and objects of chunks.
+     * @param store saves the data of chunks.
+     * @param sink receives the objects added to and removed from the game.
+     * @param chunkWidth the width of a chunk, in pixels.
+     * @param loadRadiusChunks number of chunks loaded on each side of the player.
+     * @param unloadExtraChunks number of chunks past the load radius that are kept before
+     *                          unloading, so walking back and forth does not reload chunks.
+     * @param distantChunks shows the chunks beyond the ones kept loaded, or null to show nothing
+     *                      there. the camera only forces chunks it shows to load when they are
+     *                      not beyond.
+     */
+    public ChunkWorld(ChunkBuilder builder, ChunkStore store, ObjectSink sink, int chunkWidth,
+                      int loadRadiusChunks, int unloadExtraChunks, DistantChunks distantChunks) {
+        this.distantChunks = distantChunks;
+        this.builder = builder;
+        this.store = store;
+        this.chunkWidth = chunkWidth;
+        this.loadRadiusChunks = loadRadiusChunks;
+        this.unloadExtraChunks = unloadExtraChunks;
+        this.streamer = new ChunkStreamer(this::generateChunk, builder::recycle, CHUNK_WORKERS,
+                READY_QUEUE_CAPACITY);
+        this.cache = new ChunkCache(CHUNK_CACHE_MAX_CHUNKS, CHUNK_CACHE_MAX_OBJECTS, this::evictChunk);
+        this.materializer = new ChunkMaterializer(sink, cache::put);
+    }
+
+    /**
+     * @return the number of loaded chunks
+     */
+    public int loadedChunkCount() { return loadedChunks.size(); }
+
+    /**
+     * @return the cache of unloaded chunks, for reporting
+     */
+    public ChunkCache cache() { return cache; }
+
+    /**
+     * @return the number of objects of sleeping chunks, which are out of the game's update set
+     */
+    public int sleepingObjectCount() { return materializer.sleepingObjects(); }
+
+    /**
+     * Ensures that all chunks within the configured load radius around the given center x are
+     * loaded. The radius is stretched in the direction the avatar moves so chunks are generated
+     * in the background before they are needed. finished chunks are added to the game within the
+     * frame's time budget, chunks the camera already shows are loaded completely right away, and
+     * chunks outside an extended unload radius are removed. The loaded chunks far from the camera
+     * are put to sleep and the ones it came close to are woken, those it already shows right away.
+     *
+     * @param centerX X-coordinate (in pixels) around which to ensure chunks are present
+     * @param velocityX horizontal velocity of the avatar, in pixels per second
+     * @param viewMinX left edge of the area the camera shows, in world coordinates
+     * @param viewMaxX right edge of the area the camera shows, in world coordinates
+     */
+    public void ensureChunksAround(float centerX, float velocityX, float viewMinX, float viewMaxX) {
+        int centerChunk = chunkOf(centerX);
+        int aheadChunk = chunkOf(centerX + velocityX * PREFETCH_SECONDS);
+        int minChunk = Math.min(centerChunk, aheadChunk) - loadRadiusChunks;
+        int maxChunk = Math.max(centerChunk, aheadChunk) + loadRadiusChunks;
+        int unloadMin = minChunk - unloadExtraChunks;
+        int unloadMax = maxChunk + unloadExtraChunks;
+
+        ChunkStreamer.GeneratedChunk ready;
+        while ((ready = streamer.poll()) != null) {
+            int chunkId = ready.chunkId();
+            if (chunkId >= unloadMin && chunkId <= unloadMax && !loadedChunks.containsKey(chunkId)) {
+                loadChunk(ready.chunk(), GENERATED);
+            } else {
+                builder.recycle(ready.chunk());
+            }
+        }
+
+        updateSleeping(viewMinX, viewMaxX);
+
+        // the camera must never show a missing chunk, so those are not left to the workers
+        for (int chunkId = chunkOf(viewMinX); chunkId <= chunkOf(viewMaxX); chunkId++) {
+            if (distantChunks != null && (chunkId < unloadMin || chunkId > unloadMax)) continue;
+            if (!loadedChunks.containsKey(chunkId) && !reuseChunk(chunkId)) {
+                streamer.cancel(chunkId);
+                loadChunk(generateChunk(chunkId), GENERATED);
+            }
+            materializer.flush(chunkId);
+        }
+
+        // nearest chunks first, starting with the side the avatar is moving to
+        int direction = velocityX < 0 ? -1 : 1;
+        int reach = Math.max(maxChunk - centerChunk, centerChunk - minChunk);
+        for (int offset = 0; offset <= reach; offset++) {
+            requestChunk(centerChunk + direction * offset, minChunk, maxChunk);
+            requestChunk(centerChunk - direction * offset, minChunk, maxChunk);
+        }
+        streamer.cancelOutside(minChunk, maxChunk);
+
+        if (distantChunks != null) {
+            distantChunks.update(unloadMin, unloadMax, this::isShown);
+        }
+
+        // unload far chunks
+        Iterator<Chunk> it = loadedChunks.values().iterator();
+        while (it.hasNext()) {
+            Chunk chunk = it.next();
+            if (chunk.id() < unloadMin || chunk.id() > unloadMax) {
+                if (distantChunks != null) {
+                    distantChunks.cover(chunk);
+                }
+                unloadChunk(chunk);
+                it.remove();
+            }
+        }
+
+        long budgetNanos = (long) (MATERIALIZE_BUDGET_MILLIS * 1_000_000L);
+        materializer.step(centerChunk, budgetNanos);
+    }
+
+    /**
+     * Puts the loaded chunks that are far from the camera view to sleep and wakes the ones it
+     * came close to again, within the materializer's budget. Chunks whose objects are still being
+     * added are left awake.
+     */
+    private void updateSleeping(float viewMinX, float viewMaxX) {
+        int wakeMin = chunkOf(viewMinX - WAKE_MARGIN_CHUNKS * chunkWidth);
+        int wakeMax = chunkOf(viewMaxX + WAKE_MARGIN_CHUNKS * chunkWidth);
+        int sleepMin = chunkOf(viewMinX - SLEEP_MARGIN_CHUNKS * chunkWidth);
+        int sleepMax = chunkOf(viewMaxX + SLEEP_MARGIN_CHUNKS * chunkWidth);
+        for (Chunk chunk : loadedChunks.values()) {
+            if (chunk.id() >= wakeMin && chunk.id() <= wakeMax) {
+                materializer.wake(chunk);
+            } else if ((chunk.id() < sleepMin || chunk.id() > sleepMax)
+                    && !materializer.isPending(chunk.id())) {
+                materializer.sleep(chunk);
+            }
+        }
+    }
+
+    /**
+     * @return true if the chunk is loaded and all its objects are in the game
+     */
+    private boolean isShown(int chunkId) {
+        return loadedChunks.containsKey(chunkId) && !materializer.isPending(chunkId);
+    }
+
+    private void requestChunk(int chunkId, int minChunk, int maxChunk) {
+        if (chunkId < minChunk || chunkId > maxChunk) return;
+        if (loadedChunks.containsKey(chunkId)) return;
+        if (streamer.isPending(chunkId)) return;
+        if (reuseChunk(chunkId)) return;
+        streamer.request(chunkId);
+    }
+
+    /**
+     * Takes back a chunk whose objects are still being removed from the game, or were removed
+     * recently and are still cached, instead of generating it again.
+     *
+     * @param chunkId the id of the chunk.
+     * @return true if the chunk was reused and is now loaded again.
+     */
+    private boolean reuseChunk(int chunkId) {
+        Chunk chunk = materializer.resumeAttach(chunkId, RESUMED);
+        if (chunk != null) {
+            loadedChunks.put(chunkId, chunk);
+            PepseMetrics.get().chunkLoaded();
+            return true;
+        }
+        chunk = cache.take(chunkId);
+        if (chunk != null) {
+            loadChunk(chunk, CACHED);
+            return true;
+        }
+        return false;
+    }
+
+    private int chunkOf(float x) {
+        return Math.floorDiv((int) Math.floor(x), chunkWidth);
+    }
+
+    /**
+     * Creates the game objects of a chunk. The chunk's data is read from the saved world when it
+     * was saved before, otherwise it is generated and saved.
+     * The objects are not added to the game, so this method is safe to call from a worker thread.
+     *
+     * @param chunkId The integer id of the chunk to generate
+     * @return the chunk
+     */
+    private Chunk generateChunk(int chunkId) {
+        return generateChunk(chunkId, () -> false);
+    }
+
+    /**
+     * Creates the game objects of a chunk like {@link #generateChunk(int)}, unless the chunk is no
+     * longer needed. The request is checked after reading the saved world, after generating the
+     * terrain and the flora, and before the objects are built.
+     *
+     * @param chunkId The integer id of the chunk to generate
+     * @param cancelled tells whether the chunk is no longer needed.
+     * @return the chunk, or null if it was cancelled.
+     */
+    private Chunk generateChunk(int chunkId, BooleanSupplier cancelled) {
+        ChunkGenerateEvent event = new ChunkGenerateEvent();
+        event.begin();
+        long start = System.nanoTime();
+
+        ChunkData data = store.read(chunkId);
+        boolean fromStore = data != null;
+        if (cancelled.getAsBoolean()) return null;
+        if (!fromStore) {
+            data = builder.generate(chunkId, cancelled);
+            if (data == null) return null;
+            store.write(chunkId, data);
+            if (cancelled.getAsBoolean()) return null;
+        }
+        Chunk chunk = builder.build(chunkId, data);
+
+        PepseMetrics.get().chunkGenerated(System.nanoTime() - start, fromStore);
+        event.end();
+        if (event.shouldCommit()) {
+            event.chunkId = chunkId;
+            event.fromStore = fromStore;
+            event.objectCount = chunk.objects().size();
+            event.commit();
+        }
+        return chunk;
+    }
+
+    /**
+     * Load a single chunk, its already generated objects are added to the appropriate layers
+     * over the next frames.
+     *
+     * @param chunk the chunk to load, as created by {@link #generateChunk(int)}
+     * @param source where the chunk came from, for diagnostics
+     */
+    private void loadChunk(Chunk chunk, String source) {
+        loadedChunks.put(chunk.id(), chunk);
+        materializer.attach(chunk, source);
+        PepseMetrics.get().chunkLoaded();
+    }
+
+    /**
+     * Removes all game objects of a chunk from their layers, over the next frames. Objects of a
+     * sleeping chunk that are out of the game already are dropped right away.
+     *
+     * @param chunk the chunk to unload
+     */
+    private void unloadChunk(Chunk chunk) {
+        ChunkUnloadEvent event = new ChunkUnloadEvent();
+        event.begin();
+        materializer.detach(chunk);
+        PepseMetrics.get().chunkUnloaded();
+        event.end();
+        if (event.shouldCommit()) {
+            event.chunkId = chunk.id();
+            event.objectCount = chunk.objects().size();
+            event.commit();
+        }
+    }
+
+    /**
+     * Saves the state of the fruits of every chunk still in memory: the loaded ones, the ones
+     * being unloaded and the cached ones. Called on the game thread when the game exits, before
+     * the store is closed, since otherwise chunks are only saved when they leave the cache.
+     */
+    public void close() {
+        for (Chunk chunk : loadedChunks.values()) {
+            saveState(chunk);
+        }
+        for (Chunk chunk : materializer.detachingChunks()) {
+            saveState(chunk);
+        }
+        for (Chunk chunk : cache.chunks()) {
+            saveState(chunk);
+        }
+    }
+
+    /**
+     * Called when a chunk leaves the cache of unloaded chunks. Saves the state of the chunk's
+     * fruits, then recycles its objects.
+     *
+     * @param chunk the evicted chunk.
+     */
+    private void evictChunk(Chunk chunk) {
+        saveState(chunk);
+        builder.recycle(chunk);
+    }
+
+    /**
+     * Saves the state of a chunk's fruits if it changed since the chunk was saved.
+     */
+    private void saveState(Chunk chunk) {
+        if (builder.captureState(chunk)) {
+            store.write(chunk.id(), chunk.data());
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package pepse.world.chunks;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntPredicate;
+
+/**
+ * Shows the chunks beyond the ones the {@link ChunkWorld} keeps in the game, in less detail.
+ *
+ * Around the loaded chunks lie two rings. Chunks in the middle ring are shown by their distant
+ * view from {@link ChunkBuilder#buildDistant}: a baked terrain texture and tree silhouettes that
+ * do not collide, move or update. Chunks in the outer ring are shown only by the outline of their
+ * terrain. Distant views are built on a background worker, outlines are cheap and are built right
+ * away, so every chunk of the rings is always shown by at least its outline.
+ *
+ * Whenever a chunk changes how it is shown, the new objects are added before the old ones are
+ * removed, so no gap ever opens: a distant view replaces an outline once it is built, a chunk
+ * the world loads keeps its distant view until all its objects are in the game, and a chunk the
+ * world unloads gets its distant view back before its objects start leaving. Chunks the world
+ * keeps but does not show completely yet are covered by their outline as well.
+ *
+ * All methods must be called from the game thread.
+ */
+public class DistantChunks {
+    private static final int WORKERS = 1;
+    private static final int READY_QUEUE_CAPACITY = 4;
+
+    private final ChunkBuilder builder;
+    private final ChunkStore store;
+    private final ObjectSink sink;
+    private final int middleRingChunks;
+    private final int outerRingChunks;
+    private final ChunkStreamer streamer;
+
+    private final Map<Integer, Chunk> views = new HashMap<>();
+    private final Map<Integer, LayeredObject> outlines = new HashMap<>();
+
+    private int middleMin = 0;
+    private int middleMax = -1;
+    private int outerMin = 0;
+    private int outerMax = -1;
+
+    /**
+     * Creates new empty rings.
+     *
+     * @param builder creates the distant views and outlines of chunks.
+     * @param store the saved world, the data of distant views is read from it or saved to it.
+     * @param sink receives the objects added to and removed from the game. it should not hand
+     *             them to the wind, timers or triggers, since distant chunks only stand still.
+     * @param middleRingChunks width of the middle ring, in chunks on each side.
+     * @param outerRingChunks width of the outer ring, in chunks on each side.
+     */
+    public DistantChunks(ChunkBuilder builder, ChunkStore store, ObjectSink sink,
+                         int middleRingChunks, int outerRingChunks) {
+        this.builder = builder;
+        this.store = store;
+        this.sink = sink;
+        this.middleRingChunks = middleRingChunks;
+        this.outerRingChunks = outerRingChunks;
+        this.streamer = new ChunkStreamer(this::generateView, builder::recycle, WORKERS,
+                READY_QUEUE_CAPACITY);
+    }
+
+    /**
+     * @return the number of chunks shown by their distant view
+     */
+    public int viewCount() { return views.size(); }
+
+    /**
+     * @return the number of chunks shown by their outline
+     */
+    public int outlineCount() { return outlines.size(); }
+
+    /**
+     * Moves the rings around the chunks the world keeps, and adds and removes the objects of the
+     * chunks that changed rings.
+     *
+     * @param keptMin the lowest id of the chunks the world keeps loaded.
+     * @param keptMax the highest id of the chunks the world keeps loaded.
+     * @param shown tells if the world shows a chunk completely, with all its objects in the game.
+     */
+    public void update(int keptMin, int keptMax, IntPredicate shown) {
+        middleMin = keptMin - middleRingChunks;
+        middleMax = keptMax + middleRingChunks;
+        outerMin = middleMin - outerRingChunks;
+        outerMax = middleMax + outerRingChunks;
+
+        ChunkStreamer.GeneratedChunk ready;
+        while ((ready = streamer.poll()) != null) {
+            int chunkId = ready.chunkId();
+            if (isInMiddleRing(chunkId) && !views.containsKey(chunkId) && !shown.test(chunkId)) {
+                addView(ready.chunk());
+            } else {
+                builder.recycle(ready.chunk());
+            }
+        }
+
+        // the world shows these chunks itself once it has all their objects in the game, until
+        // then they are covered like the chunks of the rings
+        for (int chunkId = keptMin; chunkId <= keptMax; chunkId++) {
+            if (shown.test(chunkId)) {
+                removeView(chunkId);
+                removeOutline(chunkId);
+            } else if (!views.containsKey(chunkId)) {
+                addOutline(chunkId);
+            }
+        }
+
+        Iterator<Chunk> it = views.values().iterator();
+        while (it.hasNext()) {
+            Chunk view = it.next();
+            if (view.id() < middleMin || view.id() > middleMax) {
+                if (isInOuterRing(view.id())) {
+                    addOutline(view.id());
+                }
+                detach(view);
+                it.remove();
+            }
+        }
+        Iterator<Map.Entry<Integer, LayeredObject>> outlineIt = outlines.entrySet().iterator();
+        while (outlineIt.hasNext()) {
+            Map.Entry<Integer, LayeredObject> entry = outlineIt.next();
+            if (!isInOuterRing(entry.getKey())) {
+                LayeredObject outline = entry.getValue();
+                sink.remove(outline.obj(), outline.layer());
+                outlineIt.remove();
+            }
+        }
+
+        for (int chunkId = outerMin; chunkId <= outerMax; chunkId++) {
+            if (chunkId >= keptMin && chunkId <= keptMax) continue;
+            if (views.containsKey(chunkId)) continue;
+            addOutline(chunkId);
+            if (isInMiddleRing(chunkId)) {
+                streamer.request(chunkId);
+            }
+        }
+        streamer.cancelOutside(middleMin, middleMax);
+    }
+
+    /**
+     * Shows a chunk the world is about to unload by its distant view, or by its outline when it
+     * is in the outer ring, before the chunk's objects start leaving the game.
+     *
+     * @param chunk the chunk the world unloads.
+     */
+    public void cover(Chunk chunk) {
+        int chunkId = chunk.id();
+        if (views.containsKey(chunkId)) return;
+        if (isInMiddleRing(chunkId)) {
+            streamer.cancel(chunkId);
+            addView(builder.buildDistant(chunkId, chunk.data()));
+        } else if (isInOuterRing(chunkId)) {
+            addOutline(chunkId);
+        }
+    }
+
+    private boolean isInMiddleRing(int chunkId) {
+        return chunkId >= middleMin && chunkId <= middleMax;
+    }
+
+    private boolean isInOuterRing(int chunkId) {
+        return chunkId >= outerMin && chunkId <= outerMax;
+    }
+
+    private void addView(Chunk view) {
+        for (LayeredObject lo : view.objects()) {
+            sink.add(lo.obj(), lo.layer());
+        }
+        views.put(view.id(), view);
+        removeOutline(view.id());
+    }
+
+    private void removeView(int chunkId) {
+        Chunk view = views.remove(chunkId);
+        if (view != null) {
+            detach(view);
+        }
+    }
+
+    private void detach(Chunk view) {
+        for (LayeredObject lo : view.objects()) {
+            sink.remove(lo.obj(), lo.layer());
+        }
+        builder.recycle(view);
+    }
+
+    private void addOutline(int chunkId) {
+        if (outlines.containsKey(chunkId)) return;
+        LayeredObject outline = builder.buildOutline(chunkId);
+        sink.add(outline.obj(), outline.layer());
+        outlines.put(chunkId, outline);
+    }
+
+    private void removeOutline(int chunkId) {
+        LayeredObject outline = outlines.remove(chunkId);
+        if (outline != null) {
+            sink.remove(outline.obj(), outline.layer());
+        }
+    }
+
+    /**
+     * Creates the distant view of a chunk, called on the worker. The chunk's data is read from the
+     * saved world when it was saved before, otherwise it is generated and saved. Gives up with
+     * null once the chunk is no longer needed.
+     */
+    private Chunk generateView(int chunkId, BooleanSupplier cancelled) {
+        ChunkData data = store.read(chunkId);
+        if (cancelled.getAsBoolean()) return null;
+        if (data == null) {
+            data = builder.generate(chunkId, cancelled);
+            if (data == null) return null;
+            store.write(chunkId, data);
+            if (cancelled.getAsBoolean()) return null;
+        }
+        return builder.buildDistant(chunkId, data);
+    }
+}
@@ -0,0 +1,32 @@
+package pepse.world.chunks;
+
+import danogl.GameObject;
+
+/**
+ * helper pairing a {@link GameObject} with the layer it should be added to
+ */
+public class LayeredObject {
+    private final GameObject obj;
+    private final int layer;
+
+    /**
+     * Creates a new pair.
+     *
+     * @param obj the game object.
+     * @param layer the layer the object belongs to.
+     */
+    public LayeredObject(GameObject obj, int layer) {
+        this.obj = obj;
+        this.layer = layer;
+    }
+
+    /**
+     * @return the game object
+     */
+    public GameObject obj() { return obj; }
+
+    /**
+     * @return the layer of the game object
+     */
+    public int layer() { return layer; }
+}
@@ -0,0 +1,57 @@
+package pepse.world.chunks;
+
+import danogl.GameObject;
+
+/**
+ * The place chunk objects are added to and removed from, usually the engine's game object
+ * collection.
+ */
+public interface ObjectSink {
+
+    /**
+     * Adds an object to a layer.
+     *
+     * @param obj the object to add.
+     * @param layer the layer to add it to.
+     */
+    void add(GameObject obj, int layer);
+
+    /**
+     * Removes an object from a layer.
+     *
+     * @param obj the object to remove.
+     * @param layer the layer it was added to.
+     */
+    void remove(GameObject obj, int layer);
+
+    /**
+     * Stops updating an object of a chunk far from the camera, it stays in the world otherwise.
+     * By default the object is removed.
+     *
+     * @param obj the object to put to sleep.
+     * @param layer the layer it was added to.
+     */
+    default void sleep(GameObject obj, int layer) {
+        remove(obj, layer);
+    }
+
+    /**
+     * Updates an object put to sleep by {@link #sleep} again. By default the object is added back.
+     *
+     * @param obj the object to wake.
+     * @param layer the layer it was added to.
+     */
+    default void wake(GameObject obj, int layer) {
+        add(obj, layer);
+    }
+
+    /**
+     * Removes from the world an object that was put to sleep by {@link #sleep} and is not woken
+     * again, because its chunk is unloaded. By default the object is out already.
+     *
+     * @param obj the object to remove.
+     * @param layer the layer it was added to.
+     */
+    default void removeAsleep(GameObject obj, int layer) {
+    }
+}
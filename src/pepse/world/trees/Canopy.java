@@ -0,0 +1,192 @@
+package pepse.world.trees;
+
+import danogl.GameObject;
+import danogl.gui.rendering.ImageRenderable;
+import danogl.gui.rendering.Renderable;
+import danogl.util.Vector2;
+import pepse.utils.HashRandom;
+import pepse.world.Block;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.awt.image.WritableRaster;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The whole crown of a tree as a single GameObject.
+ *
+ * Instead of one {@link Leaf} per canopy cell, the leaves of the crown are drawn once into an
+ * image, and the crown moves in the {@link WindField} as a whole. Each cell is drawn in the
+ * leaf palette variant a {@link Leaf} at its position would have, so the crown looks exactly like
+ * its leaves. The image only depends on the color of each cell, so crowns with the same shape and
+ * colors share it: baked images are kept in a bounded cache. Images index a small palette of the
+ * leaf colors plus transparency, with as few bits per pixel as the palette needs.
+ */
+public class Canopy extends GameObject {
+    /**
+     * maximal number of baked crown images kept for reuse
+     */
+    private static final int CACHE_CAPACITY = 1024;
+
+    /**
+     * the look of a crown: its size, and for each cell 0 if it has no leaf, otherwise the index
+     * of the leaf's palette variant plus one
+     */
+    private static class Shape {
+        private final int sizeBlocks;
+        private final byte[] cells;
+
+        private Shape(int sizeBlocks, byte[] cells) {
+            this.sizeBlocks = sizeBlocks;
+            this.cells = cells;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Shape)) return false;
+            Shape other = (Shape) o;
+            return sizeBlocks == other.sizeBlocks && Arrays.equals(cells, other.cells);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * sizeBlocks + Arrays.hashCode(cells);
+        }
+    }
+
+    private static final Map<Shape, Renderable> BAKED =
+            new LinkedHashMap<>(CACHE_CAPACITY + 1, 1f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Shape, Renderable> eldest) {
+                    return size() > CACHE_CAPACITY;
+                }
+            };
+
+    private final int sizeBlocks;
+    private float windPhase;
+    private float windVariation;
+
+    /**
+     * index of the canopy in the wind field, -1 while the wind field does not move it
+     */
+    private int windSlot = -1;
+
+    /**
+     * Creates a new Canopy.
+     *
+     * @param topLeftCorner The top-left corner of the crown in world coordinates.
+     * @param sizeBlocks the width and height of the crown, in blocks.
+     * @param leafMask bit (column * sizeBlocks + row) is set for every cell that has a leaf.
+     * @param windKey {@link HashRandom} key of the crown's wind phase and slight variation
+     */
+    public Canopy(Vector2 topLeftCorner, int sizeBlocks, long leafMask, long windKey) {
+        super(topLeftCorner, Vector2.ONES.mult(sizeBlocks * Block.SIZE),
+                baked(topLeftCorner, sizeBlocks, leafMask));
+        this.sizeBlocks = sizeBlocks;
+        setTag("leaf");
+        setWind(windKey);
+    }
+
+    /**
+     * Moves a canopy that is no longer in the game to a new position and gives it a new shape and
+     * wind phase, as if it was newly created there.
+     *
+     * @param topLeftCorner The new top-left corner of the crown in world coordinates.
+     * @param leafMask bit (column * sizeBlocks + row) is set for every cell that has a leaf.
+     * @param windKey {@link HashRandom} key of the crown's wind phase and slight variation
+     */
+    public void reset(Vector2 topLeftCorner, long leafMask, long windKey) {
+        renderer().setRenderableAngle(0f);
+        setTopLeftCorner(topLeftCorner);
+        renderer().setRenderable(baked(topLeftCorner, sizeBlocks, leafMask));
+        setWind(windKey);
+    }
+
+    /**
+     * @return the width and height of the crown, in blocks.
+     */
+    public int sizeBlocks() { return sizeBlocks; }
+
+    /**
+     * @return where in its wind cycle the crown starts, between 0 and 1
+     */
+    public float windPhase() { return windPhase; }
+
+    /**
+     * @return between 0 and 1, a slight variation in the duration of the crown's wind cycle
+     */
+    public float windVariation() { return windVariation; }
+
+    int windSlot() { return windSlot; }
+
+    void setWindSlot(int windSlot) { this.windSlot = windSlot; }
+
+    private void setWind(long windKey) {
+        windPhase = HashRandom.floatAt(windKey, 0);
+        windVariation = HashRandom.floatAt(windKey, 1);
+    }
+
+    /**
+     * @return the shared image of a crown at the given position, baked on the first request.
+     * crowns are created by the chunk loading threads, so the cache is synchronized.
+     */
+    private static Renderable baked(Vector2 topLeftCorner, int sizeBlocks, long leafMask) {
+        byte[] cells = new byte[sizeBlocks * sizeBlocks];
+        for (int cell = 0; cell < cells.length; cell++) {
+            if ((leafMask & (1L << cell)) == 0) continue;
+            // the variant of a leaf in this cell, as Leaf picks it from its top-left corner
+            int x = (int) topLeftCorner.x() + cell / sizeBlocks * Block.SIZE;
+            int y = (int) topLeftCorner.y() + cell % sizeBlocks * Block.SIZE;
+            cells[cell] = (byte) (Leaf.LEAF_PALETTE.variantIndexAt(x, y) + 1);
+        }
+        Shape shape = new Shape(sizeBlocks, cells);
+        synchronized (BAKED) {
+            Renderable renderable = BAKED.get(shape);
+            if (renderable == null) {
+                renderable = new ImageRenderable(bake(shape));
+                BAKED.put(shape, renderable);
+            }
+            return renderable;
+        }
+    }
+
+    private static BufferedImage bake(Shape shape) {
+        // index 0 is transparent, variant i is index i + 1
+        int colorCount = Leaf.LEAF_PALETTE.size() + 1;
+        byte[] red = new byte[colorCount];
+        byte[] green = new byte[colorCount];
+        byte[] blue = new byte[colorCount];
+        byte[] alpha = new byte[colorCount];
+        for (int i = 0; i < Leaf.LEAF_PALETTE.size(); i++) {
+            Color color = Leaf.LEAF_PALETTE.color(i);
+            red[i + 1] = (byte) color.getRed();
+            green[i + 1] = (byte) color.getGreen();
+            blue[i + 1] = (byte) color.getBlue();
+            alpha[i + 1] = (byte) 0xFF;
+        }
+        int size = shape.sizeBlocks * Block.SIZE;
+        BufferedImage image;
+        if (colorCount <= 16) {
+            // packed, with 1, 2 or 4 bits per pixel depending on the number of colors
+            int bits = colorCount <= 2 ? 1 : colorCount <= 4 ? 2 : 4;
+            image = new BufferedImage(size, size, BufferedImage.TYPE_BYTE_BINARY,
+                    new IndexColorModel(bits, colorCount, red, green, blue, alpha));
+        } else {
+            image = new BufferedImage(size, size, BufferedImage.TYPE_BYTE_INDEXED,
+                    new IndexColorModel(8, colorCount, red, green, blue, alpha));
+        }
+
+        WritableRaster raster = image.getRaster();
+        int[] samples = new int[Block.SIZE * Block.SIZE];
+        for (int cell = 0; cell < shape.cells.length; cell++) {
+            if (shape.cells[cell] == 0) continue;
+            Arrays.fill(samples, shape.cells[cell] & 0xFF);
+            raster.setSamples(cell / shape.sizeBlocks * Block.SIZE,
+                    cell % shape.sizeBlocks * Block.SIZE, Block.SIZE, Block.SIZE, 0, samples);
+        }
+        return image;
+    }
+}
@@ -1,12 +1,14 @@
 package pepse.world.trees;
 
 import danogl.GameObject;
+import pepse.diagnostics.FloraEvent;
+import pepse.utils.HashRandom;
+import pepse.utils.ObjectPool;
 import pepse.world.Block;
+import pepse.world.chunks.ChunkData;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Objects;
-import java.util.Random;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
@@ -21,12 +23,29 @@ import java.util.function.Function;
 public class Flora {
     private static final float TREE_PROBABILITY = 0.1f;
 
+    /**
+     * {@link HashRandom} streams of the tree decision and layout, and of the leaves' wind
+     */
+    private static final int TREE_STREAM = 0x54524545;
+    private static final int WIND_STREAM = 0x57494e44;
+
+    /**
+     * maximal number of unloaded flora objects kept for reuse, per type
+     */
+    private static final int TRUNK_POOL_CAPACITY = 64;
+    private static final int LEAF_POOL_CAPACITY = 1024;
+    private static final int CANOPY_POOL_CAPACITY = 64;
+    private static final int FRUIT_POOL_CAPACITY = 256;
+
     private final int worldSeed;
     private final Function<Float, Float> groundHeightAt;
     private final Consumer<Float> onFruitCollected;
+    private final boolean bakedCanopies;
+    private final FloraPools pools = new FloraPools(TRUNK_POOL_CAPACITY, LEAF_POOL_CAPACITY,
+            CANOPY_POOL_CAPACITY, FRUIT_POOL_CAPACITY);
 
     /**
-     * Creates a new Flora generator.
+     * Creates a new Flora generator with a {@link Leaf} per canopy cell.
      *
      * @param groundHeightAt Function mapping x to ground surface y. used so trees are placed on the ground
      * @param worldSeed deterministic seed to ensure the same flora distribution for the same world.
@@ -35,43 +54,169 @@ public class Flora {
     public Flora(Function<Float, Float> groundHeightAt,
                  int worldSeed,
                  Consumer<Float> onFruitCollected) {
+        this(groundHeightAt, worldSeed, onFruitCollected, false);
+    }
+
+    /**
+     * Creates a new Flora generator.
+     *
+     * @param groundHeightAt Function mapping x to ground surface y. used so trees are placed on the ground
+     * @param worldSeed deterministic seed to ensure the same flora distribution for the same world.
+     * @param onFruitCollected Callback that will be called when a fruit created by this flora is collected.
+     * @param bakedCanopies true to draw the crown of each tree as a single {@link Canopy}, false
+     *                      for a {@link Leaf} per canopy cell, each moving in the wind on its own.
+     */
+    public Flora(Function<Float, Float> groundHeightAt,
+                 int worldSeed,
+                 Consumer<Float> onFruitCollected,
+                 boolean bakedCanopies) {
         this.groundHeightAt = groundHeightAt;
         this.worldSeed = worldSeed;
         this.onFruitCollected = onFruitCollected;
+        this.bakedCanopies = bakedCanopies;
     }
 
     /**
      * Creates all flora objects in the inclusive horizontal range [minX, maxX].
      *
      * the supplied range is aligned to block boundaries (multiples of {@link Block#SIZE}). For each
-     * aligned column this method uses a deterministic Random instance (dependent on x and the world seed)
-     * to decide whether to create a tree.
+     * aligned column this method uses deterministic {@link HashRandom} values (dependent on x and the
+     * world seed) to decide whether to create a tree.
      *
      * @param minX Minimum x coordinate of requested range in world coordinates.
      * @param maxX Maximum x coordinate of requested range in world coordinates.
      * @return a {@link FloraPack} containing the trunks, leaves and fruits created in the range.
      */
     public FloraPack createInRange(int minX, int maxX) {
-        List<GameObject> trunks = new ArrayList<>();
-        List<GameObject> leaves = new ArrayList<>();
-        List<GameObject> fruits = new ArrayList<>();
-
         int startX = alignToBlock(minX);
         int endX = alignToBlock(maxX);
+        ChunkData data = new ChunkData(startX / Block.SIZE, (endX - startX) / Block.SIZE + 1, 0);
+        generate(data);
+        return createFromData(data);
+    }
+
+    /**
+     * Decides where the trees of a chunk grow and how each of them looks, and records it in the
+     * chunk's data.
+     *
+     * @param data the data of the chunk, trees are added to it.
+     */
+    public void generate(ChunkData data) {
+        FloraEvent event = new FloraEvent();
+        event.begin();
+        for (int column = 0; column < data.columnCount(); column++) {
+            int x = (data.firstColumn() + column) * Block.SIZE;
+            long treeKey = HashRandom.key(worldSeed, x, 0, TREE_STREAM);
+
+            if (HashRandom.floatAt(treeKey, 0) < TREE_PROBABILITY) {
+                data.addTree(x, Tree.layoutFor(treeKey));
+            }
+        }
+        commitEvent(event, "generate", data, 0);
+    }
 
-        for (int x = startX; x <= endX; x += Block.SIZE) {
-            Random perXRandom = new Random(Objects.hash(x, worldSeed));
+    /**
+     * Creates the trees recorded in a chunk's data. Fruits recorded as collected are created
+     * collected, with the time left until they respawn.
+     *
+     * @param data the data of the chunk.
+     * @return a {@link FloraPack} containing the trunks, leaves and fruits of the chunk. fruits
+     * are listed in the order the data numbers them.
+     */
+    public FloraPack createFromData(ChunkData data) {
+        FloraEvent event = new FloraEvent();
+        event.begin();
+        List<GameObject> trunks = new ArrayList<>();
+        List<GameObject> leaves = new ArrayList<>();
+        List<GameObject> fruits = new ArrayList<>();
 
-            if (perXRandom.nextFloat() < TREE_PROBABILITY) {
-                Tree tree = Tree.createAt(x, groundHeightAt, perXRandom, onFruitCollected);
-                trunks.add(tree.trunk());
-                leaves.addAll(tree.leaves());
-                fruits.addAll(tree.fruits());
+        for (int i = 0; i < data.treeCount(); i++) {
+            int x = data.treeX(i);
+            long windKey = HashRandom.key(worldSeed, x, 0, WIND_STREAM);
+            Tree tree = Tree.createFromLayout(x, data.treeLayout(i), groundHeightAt, windKey,
+                    onFruitCollected, pools, bakedCanopies);
+            trunks.add(tree.trunk());
+            leaves.addAll(tree.leaves());
+            fruits.addAll(tree.fruits());
+        }
+        for (int i = 0; i < fruits.size(); i++) {
+            if (data.isFruitCollected(i)) {
+                ((Fruit) fruits.get(i)).restoreCollected(data.fruitRespawnSeconds(i));
             }
         }
+        commitEvent(event, "build", data, trunks.size() + leaves.size() + fruits.size());
         return new FloraPack(trunks, leaves, fruits);
     }
 
+    /**
+     * Creates the silhouettes of the trees recorded in a chunk's data: their trunks and one
+     * {@link Canopy} per tree, without fruits.
+     *
+     * @param data the data of the chunk.
+     * @return a {@link FloraPack} containing the trunks and canopies of the chunk, and no fruits.
+     */
+    public FloraPack createSilhouettesFromData(ChunkData data) {
+        FloraEvent event = new FloraEvent();
+        event.begin();
+        List<GameObject> trunks = new ArrayList<>();
+        List<GameObject> canopies = new ArrayList<>();
+
+        for (int i = 0; i < data.treeCount(); i++) {
+            int x = data.treeX(i);
+            long windKey = HashRandom.key(worldSeed, x, 0, WIND_STREAM);
+            Tree tree = Tree.createSilhouette(x, data.treeLayout(i), groundHeightAt, windKey, pools);
+            trunks.add(tree.trunk());
+            canopies.addAll(tree.leaves());
+        }
+        commitEvent(event, "silhouette", data, trunks.size() + canopies.size());
+        return new FloraPack(trunks, canopies, new ArrayList<>());
+    }
+
+    private static void commitEvent(FloraEvent event, String phase, ChunkData data, int objectCount) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.phase = phase;
+            event.firstColumn = data.firstColumn();
+            event.columnCount = data.columnCount();
+            event.treeCount = data.treeCount();
+            event.objectCount = objectCount;
+            event.commit();
+        }
+    }
+
+    /**
+     * Records the collected state of a chunk's fruits in its data.
+     *
+     * @param data the data of the chunk.
+     * @param fruits the chunk's fruits, in the order the data numbers them.
+     * @return true if the recorded state changed.
+     */
+    public static boolean captureFruitState(ChunkData data, List<? extends GameObject> fruits) {
+        boolean changed = false;
+        for (int i = 0; i < fruits.size(); i++) {
+            Fruit fruit = (Fruit) fruits.get(i);
+            changed |= data.setFruitState(i, fruit.isCollected(), fruit.getRespawnSecondsLeft());
+        }
+        return changed;
+    }
+
+    /**
+     * Releases a trunk, leaf or fruit that is no longer in the game so later chunks can reuse it.
+     *
+     * @param obj the object to release.
+     * @return true if the object was created by this flora generator.
+     */
+    public boolean recycle(GameObject obj) {
+        return pools.recycle(obj);
+    }
+
+    /**
+     * @return the pools flora objects are reused from, for reporting.
+     */
+    public List<ObjectPool<?>> pools() {
+        return pools.pools();
+    }
+
     private int alignToBlock(int x) {
         return (int) Math.floor((double) x / Block.SIZE) * Block.SIZE;
     }
@@ -9,7 +9,9 @@ import java.util.List;
  * A container bundling the GameObjects that make up flora created in a range.
  *
  * A {@link FloraPack} contains separate lists for tree trunks, leaves and fruits so callers
- * can add each group to the correct game layer
+ * can add each group to the correct game layer. With baked canopies the leaves list holds one
+ * {@link Canopy} per tree instead of its leaves. The objects are created from a
+ * {@link pepse.world.chunks.ChunkData}, fruits are listed in the order the data numbers them.
  */
 public class FloraPack {
     private final List<GameObject> trunks;
@@ -0,0 +1,124 @@
+package pepse.world.trees;
+
+import danogl.GameObject;
+import danogl.util.Vector2;
+import pepse.utils.ObjectPool;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Pools of the trunks, leaves, canopies and fruits that make up trees.
+ *
+ * Objects of chunks that were unloaded are released here and handed out again, reset to their new
+ * position and state, when trees are created for a new chunk.
+ */
+public class FloraPools {
+    private final ObjectPool<Trunk> trunks;
+    private final ObjectPool<Leaf> leaves;
+    private final ObjectPool<Canopy> canopies;
+    private final ObjectPool<Fruit> fruits;
+
+    /**
+     * Creates new empty pools.
+     *
+     * @param trunkCapacity maximal number of pooled trunks.
+     * @param leafCapacity maximal number of pooled leaves.
+     * @param canopyCapacity maximal number of pooled canopies.
+     * @param fruitCapacity maximal number of pooled fruits.
+     */
+    public FloraPools(int trunkCapacity, int leafCapacity, int canopyCapacity, int fruitCapacity) {
+        this.trunks = new ObjectPool<>("Trunk", trunkCapacity);
+        this.leaves = new ObjectPool<>("Leaf", leafCapacity);
+        this.canopies = new ObjectPool<>("Canopy", canopyCapacity);
+        this.fruits = new ObjectPool<>("Fruit", fruitCapacity);
+    }
+
+    /**
+     * @param topLeftCorner the top-left corner of the trunk in world coordinates.
+     * @param height the height (in pixels) of the trunk.
+     * @return a pooled trunk moved to the given position, or a new one.
+     */
+    public Trunk trunk(Vector2 topLeftCorner, float height) {
+        Trunk trunk = trunks.acquire();
+        if (trunk == null) {
+            return new Trunk(topLeftCorner, height);
+        }
+        trunk.reset(topLeftCorner, height);
+        return trunk;
+    }
+
+    /**
+     * @param topLeftCorner The top-left corner position of the leaf in world coordinates.
+     * @param windKey {@link pepse.utils.HashRandom} key of the leaf's initial delay and slight
+     *                variation
+     * @return a pooled leaf moved to the given position, or a new one.
+     */
+    public Leaf leaf(Vector2 topLeftCorner, long windKey) {
+        Leaf leaf = leaves.acquire();
+        if (leaf == null) {
+            return new Leaf(topLeftCorner, windKey);
+        }
+        leaf.reset(topLeftCorner, windKey);
+        return leaf;
+    }
+
+    /**
+     * @param topLeftCorner The top-left corner of the crown in world coordinates.
+     * @param sizeBlocks the width and height of the crown, in blocks.
+     * @param leafMask bit (column * sizeBlocks + row) is set for every cell that has a leaf.
+     * @param windKey {@link pepse.utils.HashRandom} key of the crown's wind phase and slight
+     *                variation
+     * @return a pooled canopy of the same size moved to the given position, or a new one.
+     */
+    public Canopy canopy(Vector2 topLeftCorner, int sizeBlocks, long leafMask, long windKey) {
+        Canopy canopy = canopies.acquire();
+        if (canopy == null || canopy.sizeBlocks() != sizeBlocks) {
+            return new Canopy(topLeftCorner, sizeBlocks, leafMask, windKey);
+        }
+        canopy.reset(topLeftCorner, leafMask, windKey);
+        return canopy;
+    }
+
+    /**
+     * @param topLeftCorner the top-left corner position of the fruit in world coordinates.
+     * @param onCollected Callback invoked when the fruit is collected, receives the energy bonus.
+     * @return a pooled fruit moved to the given position, or a new one.
+     */
+    public Fruit fruit(Vector2 topLeftCorner, Consumer<Float> onCollected) {
+        Fruit fruit = fruits.acquire();
+        if (fruit == null) {
+            return new Fruit(topLeftCorner, onCollected);
+        }
+        fruit.reset(topLeftCorner, onCollected);
+        return fruit;
+    }
+
+    /**
+     * Releases an object that is no longer in the game to its pool.
+     *
+     * @param obj the object to release.
+     * @return true if the object is a flora object, whether or not its pool had room for it.
+     */
+    public boolean recycle(GameObject obj) {
+        if (obj instanceof Leaf) {
+            leaves.release((Leaf) obj);
+        } else if (obj instanceof Canopy) {
+            canopies.release((Canopy) obj);
+        } else if (obj instanceof Fruit) {
+            fruits.release((Fruit) obj);
+        } else if (obj instanceof Trunk) {
+            trunks.release((Trunk) obj);
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return the trunk, leaf, canopy and fruit pools, for reporting.
+     */
+    public List<ObjectPool<?>> pools() {
+        return List.of(trunks, leaves, canopies, fruits);
+    }
+}
@@ -1,10 +1,13 @@
 package pepse.world.trees;
 
 import danogl.GameObject;
-import danogl.collisions.Collision;
-import danogl.components.ScheduledTask;
 import danogl.gui.rendering.OvalRenderable;
 import danogl.util.Vector2;
+import pepse.diagnostics.FruitCollectedEvent;
+import pepse.diagnostics.PepseMetrics;
+import pepse.utils.RenderablePalette;
+import pepse.utils.TimingWheel;
+import pepse.world.Trigger;
 
 import java.awt.Color;
 import java.util.function.Consumer;
@@ -14,9 +17,11 @@ import java.util.function.Consumer;
  *
  * The fruit becomes inactive when collected and respawns after a fixed delay.
  * it invokes a callback supplied at creation so the owning game
- * component can apply the energy bonus.
+ * component can apply the energy bonus. The respawn is a timer on the game's {@link TimingWheel},
+ * scheduled only while the fruit is in the game: when the fruit leaves the game the time left is
+ * kept and the timer cancelled, and it is scheduled again when the fruit comes back.
  */
-public class Fruit extends GameObject {
+public class Fruit extends GameObject implements Trigger {
     /**
      * Radius (in pixels) of the circular fruit.
      */
@@ -30,15 +35,30 @@ public class Fruit extends GameObject {
     private static final float ENERGY_BONUS = 10f;
 
     private static final Color FRUIT_COLOR = new Color(220, 40, 40);
+    private static final RenderablePalette FRUIT_PALETTE =
+            new RenderablePalette(FRUIT_COLOR, OvalRenderable::new);
 
     /**
      * The callback receives the energy amount
      * (as a Float) awarded to the avatar.
      */
-    private final Consumer<Float> onCollected;
+    private Consumer<Float> onCollected;
 
     private boolean active = true;
 
+    /**
+     * seconds left until the fruit respawns, as of the last time the fruit left the game or was
+     * collected
+     */
+    private float respawnSecondsLeft = 0f;
+
+    private final TimingWheel.Timer respawnTimer = new TimingWheel.Timer(this::respawn);
+
+    /**
+     * the timers of the game while the fruit is in it, null otherwise
+     */
+    private TimingWheel timers;
+
     /**
      * Creates a new Fruit.
      *
@@ -48,38 +68,128 @@ public class Fruit extends GameObject {
     public Fruit(Vector2 topLeftCorner, Consumer<Float> onCollected) {
         super(topLeftCorner,
                 Vector2.ONES.mult(RADIUS * 2),
-                new OvalRenderable(FRUIT_COLOR));
+                FRUIT_PALETTE.variantAt((int) topLeftCorner.x(), (int) topLeftCorner.y()));
         this.onCollected = onCollected;
         setTag("fruit");
     }
 
     /**
-     * Handles collisions - if an active avatar collides with the fruit, the fruit becomes inactive,
-     * invokes the energy callback and schedules a respawn task.
+     * If the avatar enters the fruit while it is active, the fruit becomes inactive, invokes the
+     * energy callback and schedules its respawn.
      *
-     * @param other the other GameObject involved in the collision.
-     * @param collision Collision information
+     * @param other the object that entered the fruit.
      */
     @Override
-    public void onCollisionEnter(GameObject other, Collision collision) {
-        super.onCollisionEnter(other, collision);
-
-        if (!active) return;
+    public void onTriggerEnter(GameObject other) {
         if (!"avatar".equals(other.getTag())) return;
+        pickUp();
+    }
 
-        active = false;
-        renderer().setOpaqueness(0f);
-
+    /**
+     * Collects the fruit if it is active: the fruit becomes inactive, invokes the energy callback
+     * and schedules its respawn.
+     *
+     * @return true if the fruit was active and is now collected.
+     */
+    public boolean pickUp() {
+        if (!active) return false;
+        FruitCollectedEvent event = new FruitCollectedEvent();
+        event.begin();
+        collect(RESPAWN_SECONDS);
         onCollected.accept(ENERGY_BONUS);
+        PepseMetrics.get().fruitPickedUp();
+        event.end();
+        if (event.shouldCommit()) {
+            event.x = getTopLeftCorner().x();
+            event.y = getTopLeftCorner().y();
+            event.commit();
+        }
+        return true;
+    }
+
+    /**
+     * Called when the fruit is added to the game, schedules its respawn if it is collected.
+     *
+     * @param timers the timers of the game.
+     */
+    public void enterGame(TimingWheel timers) {
+        this.timers = timers;
+        if (!active) {
+            timers.schedule(respawnTimer, respawnSecondsLeft);
+        }
+    }
+
+    /**
+     * Called when the fruit is removed from the game, keeps the time left until its respawn and
+     * cancels the respawn timer.
+     */
+    public void leaveGame() {
+        if (timers == null) return;
+        if (respawnTimer.isScheduled()) {
+            respawnSecondsLeft = timers.remainingSeconds(respawnTimer);
+            timers.cancel(respawnTimer);
+        }
+        timers = null;
+    }
+
+    /**
+     * @return true if the fruit was collected and did not respawn yet.
+     */
+    public boolean isCollected() { return !active; }
+
+    /**
+     * @return seconds left until a collected fruit respawns, 0 if it is active.
+     */
+    public float getRespawnSecondsLeft() {
+        if (active) return 0f;
+        if (timers != null && respawnTimer.isScheduled()) {
+            return timers.remainingSeconds(respawnTimer);
+        }
+        return respawnSecondsLeft;
+    }
 
-        new ScheduledTask(this, RESPAWN_SECONDS, false, this::respawn);
+    /**
+     * Marks the fruit as collected without awarding energy, used when restoring a saved chunk.
+     *
+     * @param respawnSeconds seconds left until the fruit respawns.
+     */
+    public void restoreCollected(float respawnSeconds) {
+        if (respawnSeconds > 0f) {
+            collect(respawnSeconds);
+        }
+    }
+
+    /**
+     * Moves a fruit that is no longer in the game to a new position and makes it active again,
+     * forgetting a pending respawn.
+     *
+     * @param topLeftCorner the new top-left corner position of the fruit in world coordinates.
+     * @param onCollected Callback invoked when the fruit is collected, receives the energy bonus.
+     */
+    public void reset(Vector2 topLeftCorner, Consumer<Float> onCollected) {
+        this.onCollected = onCollected;
+        setTopLeftCorner(topLeftCorner);
+        respawn();
+    }
+
+    private void collect(float respawnSeconds) {
+        active = false;
+        respawnSecondsLeft = respawnSeconds;
+        renderer().setOpaqueness(0f);
+        if (timers != null) {
+            timers.schedule(respawnTimer, respawnSeconds);
+        }
     }
 
     /**
-     * respawns the fruit, Scheduled internally.
+     * respawns the fruit, called by the respawn timer.
      */
     private void respawn() {
         active = true;
+        respawnSecondsLeft = 0f;
         renderer().setOpaqueness(1f);
+        if (timers != null) {
+            timers.cancel(respawnTimer);
+        }
     }
 }
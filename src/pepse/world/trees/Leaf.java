@@ -1,94 +1,85 @@
 package pepse.world.trees;
 
 import danogl.GameObject;
-import danogl.components.ScheduledTask;
-import danogl.components.Transition;
 import danogl.gui.rendering.RectangleRenderable;
 import danogl.util.Vector2;
+import pepse.utils.HashRandom;
+import pepse.utils.RenderablePalette;
 import pepse.world.Block;
 
 import java.awt.*;
-import java.util.Random;
 
 /**
  * A single leaf GameObject that move in the wind
  *
- * each leaf is a square the size of a {@link Block} and uses scheduled and transition components
- * to create a continuous move animation. The animation starts after a small randomized delay
- * so neighboring leaves are out of phase
+ * each leaf is a square the size of a {@link Block}. The leaf itself has no animation, all leaves
+ * in the game are moved together by a {@link WindField}. each leaf has its own phase and cycle
+ * variation so neighboring leaves are out of phase
  */
 public class Leaf extends GameObject {
     private static final Color LEAF_COLOR = new Color(50, 200, 30);
-    private static final float MAX_INITIAL_DELAY = 0.5f;
+    static final RenderablePalette LEAF_PALETTE =
+            new RenderablePalette(LEAF_COLOR, RectangleRenderable::new);
 
-    /**
-     * duration (seconds) of a full wind move cycle.
-     */
-    private static final float WIND_CYCLE_SECONDS = 2.0f;
-
-    private static final float MAX_ANGLE_DEG = 6f;
-    private static final float MIN_WIDTH_FACTOR = 0.995f;
-    private static final float MAX_WIDTH_FACTOR = 1.005f;
+    private float windPhase;
+    private float windVariation;
 
     /**
-     * The original leaf dimensions used as a baseline when scaling
+     * index of the leaf in the wind field, -1 while the wind field does not move it
      */
-    private final Vector2 baseDimensions;
+    private int windSlot = -1;
 
     /**
      * Creates a new Leaf.
      *
-     * the leaf is positioned at the given top-left corner and will start a wind animation after a
-     * small random delay so adjacent leaves are not synchronized.
+     * the leaf is positioned at the given top-left corner, it starts moving once it is added to a
+     * {@link WindField}.
      *
      * @param topLeftCorner The top-left corner position of the leaf in world coordinates.
-     * @param random random instance used to generate the initial delay and slight variation
+     * @param windKey {@link HashRandom} key of the leaf's wind phase and slight variation
      */
-    public Leaf(Vector2 topLeftCorner, Random random) {
+    public Leaf(Vector2 topLeftCorner, long windKey) {
         super(topLeftCorner,
                 Vector2.ONES.mult(Block.SIZE),
-                new RectangleRenderable(LEAF_COLOR));
+                LEAF_PALETTE.variantAt((int) topLeftCorner.x(), (int) topLeftCorner.y()));
 
         setTag("leaf");
-        baseDimensions = getDimensions();
-
-        float delay = random.nextFloat() * MAX_INITIAL_DELAY;
-        new ScheduledTask(this, delay, false, () -> startWind(random));
+        setWind(windKey);
     }
 
     /**
-     * Starts the wind movement animation for leaf
+     * Moves a leaf that is no longer in the game to a new position and gives it a new wind phase,
+     * as if it was newly created there.
      *
-     * The animation consists of two transitions running in parallel:
-     * - rotation between -MAX_ANGLE_DEG and +MAX_ANGLE_DEG
-     * - horizontal scaling between MIN_WIDTH_FACTOR and MAX_WIDTH_FACTOR
-     *
-     * @param random Random instance used to introduce a slight variation in the scaling cycle duration.
+     * @param topLeftCorner The new top-left corner position of the leaf in world coordinates.
+     * @param windKey {@link HashRandom} key of the leaf's wind phase and slight variation
      */
-    private void startWind(Random random) {
-        float angleA = -MAX_ANGLE_DEG;
-        float angleB = MAX_ANGLE_DEG;
+    public void reset(Vector2 topLeftCorner, long windKey) {
+        renderer().setRenderableAngle(0f);
+        setDimensions(WindField.restDimensions());
+        setTopLeftCorner(topLeftCorner);
+        renderer().setRenderable(
+                LEAF_PALETTE.variantAt((int) topLeftCorner.x(), (int) topLeftCorner.y()));
 
-        new Transition<>(
-                this,
-                this.renderer()::setRenderableAngle,
-                angleA,
-                angleB,
-                Transition.LINEAR_INTERPOLATOR_FLOAT,
-                WIND_CYCLE_SECONDS,
-                Transition.TransitionType.TRANSITION_BACK_AND_FORTH,
-                null
-        );
+        setWind(windKey);
+    }
 
-        new Transition<>(
-                this,
-                (Float factor) -> setDimensions(new Vector2(baseDimensions.x() * factor, baseDimensions.y())),
-                MIN_WIDTH_FACTOR,
-                MAX_WIDTH_FACTOR,
-                Transition.LINEAR_INTERPOLATOR_FLOAT,
-                WIND_CYCLE_SECONDS + random.nextFloat(),
-                Transition.TransitionType.TRANSITION_BACK_AND_FORTH,
-                null
-        );
+    private void setWind(long windKey) {
+        windPhase = HashRandom.floatAt(windKey, 0);
+        windVariation = HashRandom.floatAt(windKey, 1);
     }
+
+    /**
+     * @return where in its wind cycle the leaf starts, between 0 and 1
+     */
+    public float windPhase() { return windPhase; }
+
+    /**
+     * @return between 0 and 1, a slight variation in the duration of the leaf's wind cycle
+     */
+    public float windVariation() { return windVariation; }
+
+    int windSlot() { return windSlot; }
+
+    void setWindSlot(int windSlot) { this.windSlot = windSlot; }
 }
@@ -2,11 +2,12 @@ package pepse.world.trees;
 
 import danogl.GameObject;
 import danogl.util.Vector2;
+import pepse.diagnostics.TreeEvent;
+import pepse.utils.HashRandom;
 import pepse.world.Block;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
@@ -15,7 +16,9 @@ import java.util.function.Function;
  *
  * Trees are generated by the {@link Flora} generator. Each tree places a vertical trunk whose
  * bottom aligns with the ground surface, fills a canopy area above the trunk with {@link Leaf}
- * objects and attaches {@link Fruit} objects to leaves.
+ * objects and attaches {@link Fruit} objects to leaves. With baked canopies the leaves are drawn
+ * into a single {@link Canopy} instead, from the same layout, so the tree looks the same but only
+ * the whole crown moves in the wind.
  */
 public class Tree {
     private static final int MIN_TRUNK_BLOCKS = 4;
@@ -24,6 +27,12 @@ public class Tree {
     private static final float LEAF_PROBABILITY = 0.85f;
     private static final float FRUIT_PROBABILITY = 0.15f;
 
+    private static final int CANOPY_SIZE_BLOCKS = 2 * CANOPY_HALF_WIDTH_BLOCKS + 1;
+    private static final int CANOPY_CELLS = CANOPY_SIZE_BLOCKS * CANOPY_SIZE_BLOCKS;
+    private static final long CELL_MASK = (1L << CANOPY_CELLS) - 1;
+    private static final int LEAF_SHIFT = CANOPY_CELLS;
+    private static final int TRUNK_SHIFT = 2 * CANOPY_CELLS;
+
     private final GameObject trunk;
     private final List<GameObject> leaves;
     private final List<GameObject> fruits;
@@ -44,53 +53,160 @@ public class Tree {
      *
      * @param trunkX X coordinate where the trunk column is placed.
      * @param groundHeightAt Function mapping x -> ground surface y
-     * @param random random instance used for deterministic per-tree randomness.
+     * @param treeKey {@link HashRandom} key of the tree, its layout is chosen by
+     *                {@link #layoutFor}, the same way {@link Flora} chooses it.
+     * @param windKey {@link HashRandom} key of the tree's wind.
      * @param onFruitCollected Callback invoked when a fruit is collected, receives the fruit x-position.
+     * @param pools pools the trunk, leaves and fruits are taken from when available.
+     * @param bakedCanopy true to create a single {@link Canopy} instead of a leaf per cell.
      * @return a new {@link Tree} containing trunk, leaves and fruits.
      */
     public static Tree createAt(int trunkX,
                                 Function<Float, Float> groundHeightAt,
-                                Random random,
-                                Consumer<Float> onFruitCollected) {
+                                long treeKey,
+                                long windKey,
+                                Consumer<Float> onFruitCollected,
+                                FloraPools pools,
+                                boolean bakedCanopy) {
+        return createFromLayout(trunkX, layoutFor(treeKey), groundHeightAt, windKey,
+                onFruitCollected, pools, bakedCanopy);
+    }
+
+    /**
+     * Chooses the layout of a tree from the tree's key. The first value of the key is left to
+     * decide whether there is a tree at all, the layout is drawn from the second.
+     *
+     * @param treeKey {@link HashRandom} key of the tree.
+     * @return the packed layout, to be passed to {@link #createFromLayout}.
+     */
+    public static long layoutFor(long treeKey) {
+        return layoutAt(HashRandom.at(treeKey, 1));
+    }
+
+    /**
+     * Randomly chooses the shape of a tree and packs it in a single long: the trunk height in
+     * blocks, which canopy cells have leaves and which of those leaves carry fruits.
+     *
+     * The layout is drawn on its own, apart from the leaves' wind. The original generator drew
+     * each leaf's wind delay in between the cells, so a seed grows different trees than it did
+     * there.
+     *
+     * @param key {@link HashRandom} key of the tree's layout.
+     * @return the packed layout.
+     */
+    private static long layoutAt(long key) {
+        long trunkBlocks =
+                MIN_TRUNK_BLOCKS + HashRandom.intAt(key, 0, MAX_TRUNK_BLOCKS - MIN_TRUNK_BLOCKS);
+        long leafMask = 0;
+        long fruitMask = 0;
+        for (int cell = 0; cell < CANOPY_CELLS; cell++) {
+            if (HashRandom.floatAt(key, 2 * cell + 1) > LEAF_PROBABILITY) continue;
+            leafMask |= 1L << cell;
+            if (HashRandom.floatAt(key, 2 * cell + 2) < FRUIT_PROBABILITY) {
+                fruitMask |= 1L << cell;
+            }
+        }
+        return (trunkBlocks << TRUNK_SHIFT) | (leafMask << LEAF_SHIFT) | fruitMask;
+    }
+
+    /**
+     * Creates a tree from a layout chosen by {@link #layoutFor}.
+     *
+     * @param trunkX X coordinate where the trunk column is placed.
+     * @param layout the packed layout of the tree.
+     * @param groundHeightAt Function mapping x -> ground surface y
+     * @param windKey {@link HashRandom} key of the tree's wind, each leaf gets its own key
+     *                derived from it.
+     * @param onFruitCollected Callback invoked when a fruit is collected, receives the fruit x-position.
+     * @param pools pools the trunk, leaves and fruits are taken from when available.
+     * @param bakedCanopy true to create a single {@link Canopy} instead of a leaf per cell.
+     * @return a new {@link Tree} containing trunk, leaves and fruits. fruits are listed in
+     * canopy order.
+     */
+    public static Tree createFromLayout(int trunkX,
+                                        long layout,
+                                        Function<Float, Float> groundHeightAt,
+                                        long windKey,
+                                        Consumer<Float> onFruitCollected,
+                                        FloraPools pools,
+                                        boolean bakedCanopy) {
+        TreeEvent event = new TreeEvent();
+        event.begin();
         float groundY = groundHeightAt.apply((float) trunkX);
         int groundAligned = (int) Math.floor(groundY / Block.SIZE) * Block.SIZE;
 
-        int trunkBlocks = MIN_TRUNK_BLOCKS + random.nextInt(MAX_TRUNK_BLOCKS - MIN_TRUNK_BLOCKS);
+        int trunkBlocks = (int) (layout >>> TRUNK_SHIFT);
+        long leafMask = (layout >>> LEAF_SHIFT) & CELL_MASK;
+        long fruitMask = layout & CELL_MASK;
         float trunkHeight = trunkBlocks * Block.SIZE;
 
         Vector2 trunkTopLeft = new Vector2(trunkX, groundAligned - trunkHeight);
-        GameObject trunk = new Trunk(trunkTopLeft, trunkHeight);
+        GameObject trunk = pools.trunk(trunkTopLeft, trunkHeight);
 
         float canopyTopY = trunkTopLeft.y() - Block.SIZE;
         float canopyCenterX = trunkX;
 
         List<GameObject> leaves = new ArrayList<>();
         List<GameObject> fruits = new ArrayList<>();
+        if (bakedCanopy && leafMask != 0) {
+            Vector2 canopyTopLeft = new Vector2(canopyCenterX - CANOPY_HALF_WIDTH_BLOCKS * Block.SIZE,
+                    canopyTopY - CANOPY_HALF_WIDTH_BLOCKS * Block.SIZE);
+            leaves.add(pools.canopy(canopyTopLeft, CANOPY_SIZE_BLOCKS, leafMask, windKey));
+        }
 
-        for (int dx = -CANOPY_HALF_WIDTH_BLOCKS; dx <= CANOPY_HALF_WIDTH_BLOCKS; dx++) {
-            for (int dy = -CANOPY_HALF_WIDTH_BLOCKS; dy <= CANOPY_HALF_WIDTH_BLOCKS; dy++) {
-                if (random.nextFloat() > LEAF_PROBABILITY) continue;
+        for (int cell = 0; cell < CANOPY_CELLS; cell++) {
+            if ((leafMask & (1L << cell)) == 0) continue;
+            int dx = cell / CANOPY_SIZE_BLOCKS - CANOPY_HALF_WIDTH_BLOCKS;
+            int dy = cell % CANOPY_SIZE_BLOCKS - CANOPY_HALF_WIDTH_BLOCKS;
 
-                float leafX = canopyCenterX + dx * Block.SIZE;
-                float leafY = canopyTopY + dy * Block.SIZE;
-                Leaf leaf = new Leaf(new Vector2(leafX, leafY), random);
-                leaves.add(leaf);
+            float leafX = canopyCenterX + dx * Block.SIZE;
+            float leafY = canopyTopY + dy * Block.SIZE;
+            if (!bakedCanopy) {
+                leaves.add(pools.leaf(new Vector2(leafX, leafY), HashRandom.at(windKey, cell)));
+            }
 
-                if (random.nextFloat() < FRUIT_PROBABILITY) {
-                    fruits.add(new Fruit(new Vector2(leafX, leafY), onFruitCollected));
-                }
+            if ((fruitMask & (1L << cell)) != 0) {
+                fruits.add(pools.fruit(new Vector2(leafX, leafY), onFruitCollected));
             }
         }
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.trunkX = trunkX;
+            event.leafCount = Long.bitCount(leafMask);
+            event.fruitCount = fruits.size();
+            event.commit();
+        }
         return new Tree(trunk, leaves, fruits);
     }
 
+    /**
+     * Creates the silhouette of a tree from a layout chosen by {@link #layoutFor}: its trunk and a
+     * single {@link Canopy}, without fruits. used to show distant trees.
+     *
+     * @param trunkX X coordinate where the trunk column is placed.
+     * @param layout the packed layout of the tree.
+     * @param groundHeightAt Function mapping x -> ground surface y
+     * @param windKey {@link HashRandom} key of the tree's wind.
+     * @param pools pools the trunk and canopy are taken from when available.
+     * @return a new {@link Tree} containing the trunk and canopy.
+     */
+    public static Tree createSilhouette(int trunkX,
+                                        long layout,
+                                        Function<Float, Float> groundHeightAt,
+                                        long windKey,
+                                        FloraPools pools) {
+        return createFromLayout(trunkX, layout & ~CELL_MASK, groundHeightAt, windKey, null, pools,
+                true);
+    }
+
     /**
      * @return the trunk GameObject.
      */
     public GameObject trunk() { return trunk; }
 
     /**
-     * @return A list of leaf GameObjects that form tree's canopy
+     * @return A list of leaf GameObjects that form tree's canopy, or the single {@link Canopy}
      */
     public List<GameObject> leaves() { return leaves; }
 
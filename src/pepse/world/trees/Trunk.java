@@ -1,9 +1,9 @@
 package pepse.world.trees;
 
-import danogl.GameObject;
-import danogl.components.GameObjectPhysics;
 import danogl.gui.rendering.RectangleRenderable;
 import danogl.util.Vector2;
+import pepse.utils.RenderablePalette;
+import pepse.world.StaticGeometry;
 
 import java.awt.*;
 
@@ -13,8 +13,10 @@ import java.awt.*;
  * a Trunk is implemented as a rectangle, width equals {@code Block.SIZE} with
  * immovable mass so other objects collide with it.
  */
-public class Trunk extends GameObject {
+public class Trunk extends StaticGeometry {
     private static final Color TRUNK_COLOR = new Color(100, 50, 20);
+    private static final RenderablePalette TRUNK_PALETTE =
+            new RenderablePalette(TRUNK_COLOR, RectangleRenderable::new);
 
     /**
      * Creates a new trunk instance
@@ -28,10 +30,21 @@ public class Trunk extends GameObject {
     public Trunk(Vector2 topLeftCorner, float height) {
         super(topLeftCorner,
                 new Vector2(pepse.world.Block.SIZE, height),
-                new RectangleRenderable(TRUNK_COLOR));
+                TRUNK_PALETTE.variantAt((int) topLeftCorner.x(), (int) topLeftCorner.y()));
 
-        physics().preventIntersectionsFromDirection(Vector2.ZERO);
-        physics().setMass(GameObjectPhysics.IMMOVABLE_MASS);
         setTag("trunk");
     }
+
+    /**
+     * Moves a trunk that is no longer in the game to a new position and height.
+     *
+     * @param topLeftCorner the new top-left corner of the trunk in world coordinates.
+     * @param height the new height (in pixels) of the trunk.
+     */
+    public void reset(Vector2 topLeftCorner, float height) {
+        setDimensions(new Vector2(pepse.world.Block.SIZE, height));
+        setTopLeftCorner(topLeftCorner);
+        renderer().setRenderable(
+                TRUNK_PALETTE.variantAt((int) topLeftCorner.x(), (int) topLeftCorner.y()));
+    }
 }
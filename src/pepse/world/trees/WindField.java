@@ -0,0 +1,235 @@
+package pepse.world.trees;
+
+import danogl.GameObject;
+import danogl.util.Vector2;
+import pepse.world.Block;
+
+import java.util.Arrays;
+
+/**
+ * Moves all leaves and canopies in the game in the wind.
+ *
+ * Instead of every leaf running its own transitions, the wind field keeps the phase of every
+ * leaf in primitive arrays and sets the angle and width of the leaves the camera shows in one
+ * loop per frame. Leaves outside the view are skipped. The width only takes a few quantized
+ * values whose dimensions are shared, so moving the leaves allocates nothing. A {@link Canopy}
+ * is moved the same way as a whole, it only sways and at a smaller angle, since it is larger.
+ *
+ * The strength of the wind changes over time in slow gusts and scales the movement of all leaves.
+ * All methods must be called from the game thread.
+ */
+public class WindField {
+    /**
+     * duration (seconds) of a leaf's move from one side to the other, a full cycle takes twice
+     * as long.
+     */
+    private static final float WIND_CYCLE_SECONDS = 2.0f;
+
+    /**
+     * the phases of leaves are spread over this many seconds of the cycle
+     */
+    private static final float MAX_PHASE_SECONDS = 0.5f;
+
+    private static final float MAX_ANGLE_DEG = 6f;
+    private static final float MAX_CANOPY_ANGLE_DEG = 1.5f;
+    private static final float MAX_WIDTH_DELTA = 0.005f;
+
+    /**
+     * number of widths on each side of the rest width
+     */
+    private static final int WIDTH_STEPS = 4;
+    private static final Vector2[] WIDTH_DIMENSIONS = new Vector2[2 * WIDTH_STEPS + 1];
+
+    /**
+     * the width step of objects whose width does not change
+     */
+    private static final byte FIXED_WIDTH = -1;
+
+    /**
+     * the strength of the wind is BASE_STRENGTH plus two slow sines, clamped to at most 1
+     */
+    private static final float BASE_STRENGTH = 0.7f;
+    private static final float GUST_AMPLITUDE = 0.2f;
+    private static final float GUST_PERIOD_SECONDS = 11f;
+    private static final float FLUTTER_AMPLITUDE = 0.1f;
+    private static final float FLUTTER_PERIOD_SECONDS = 3.7f;
+
+    /**
+     * objects this close (in pixels) outside the view are still moved, so none is seen standing
+     * still as it enters the view
+     */
+    private static final float VIEW_MARGIN = Block.SIZE;
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    static {
+        for (int i = 0; i < WIDTH_DIMENSIONS.length; i++) {
+            float factor = 1f + MAX_WIDTH_DELTA * (i - WIDTH_STEPS) / WIDTH_STEPS;
+            WIDTH_DIMENSIONS[i] = new Vector2(Block.SIZE * factor, Block.SIZE);
+        }
+    }
+
+    private GameObject[] objects = new GameObject[INITIAL_CAPACITY];
+    private float[] minX = new float[INITIAL_CAPACITY];
+    private float[] maxX = new float[INITIAL_CAPACITY];
+    private float[] maxAngle = new float[INITIAL_CAPACITY];
+    private float[] phaseSeconds = new float[INITIAL_CAPACITY];
+    private float[] widthCycleSeconds = new float[INITIAL_CAPACITY];
+    private byte[] widthStep = new byte[INITIAL_CAPACITY];
+    private int count = 0;
+
+    private float time = 0f;
+    private float strength = BASE_STRENGTH;
+
+    /**
+     * @return the dimensions of a leaf that the wind does not bend
+     */
+    public static Vector2 restDimensions() {
+        return WIDTH_DIMENSIONS[WIDTH_STEPS];
+    }
+
+    /**
+     * Starts moving a leaf that was added to the game.
+     *
+     * @param leaf the leaf.
+     */
+    public void add(Leaf leaf) {
+        if (leaf.windSlot() >= 0) return;
+        leaf.setWindSlot(add(leaf, leaf.windPhase(), leaf.windVariation(), MAX_ANGLE_DEG,
+                (byte) WIDTH_STEPS));
+    }
+
+    /**
+     * Starts moving a canopy that was added to the game.
+     *
+     * @param canopy the canopy.
+     */
+    public void add(Canopy canopy) {
+        if (canopy.windSlot() >= 0) return;
+        canopy.setWindSlot(add(canopy, canopy.windPhase(), canopy.windVariation(),
+                MAX_CANOPY_ANGLE_DEG, FIXED_WIDTH));
+    }
+
+    /**
+     * Stops moving a leaf that was removed from the game.
+     *
+     * @param leaf the leaf.
+     */
+    public void remove(Leaf leaf) {
+        int slot = leaf.windSlot();
+        if (slot < 0) return;
+        remove(slot);
+        leaf.setWindSlot(-1);
+    }
+
+    /**
+     * Stops moving a canopy that was removed from the game.
+     *
+     * @param canopy the canopy.
+     */
+    public void remove(Canopy canopy) {
+        int slot = canopy.windSlot();
+        if (slot < 0) return;
+        remove(slot);
+        canopy.setWindSlot(-1);
+    }
+
+    private int add(GameObject obj, float phase, float variation, float angle, byte step) {
+        if (count == objects.length) {
+            int capacity = 2 * objects.length;
+            objects = Arrays.copyOf(objects, capacity);
+            minX = Arrays.copyOf(minX, capacity);
+            maxX = Arrays.copyOf(maxX, capacity);
+            maxAngle = Arrays.copyOf(maxAngle, capacity);
+            phaseSeconds = Arrays.copyOf(phaseSeconds, capacity);
+            widthCycleSeconds = Arrays.copyOf(widthCycleSeconds, capacity);
+            widthStep = Arrays.copyOf(widthStep, capacity);
+        }
+        objects[count] = obj;
+        minX[count] = obj.getTopLeftCorner().x();
+        maxX[count] = obj.getTopLeftCorner().x() + obj.getDimensions().x();
+        maxAngle[count] = angle;
+        phaseSeconds[count] = phase * MAX_PHASE_SECONDS;
+        widthCycleSeconds[count] = WIND_CYCLE_SECONDS + variation;
+        widthStep[count] = step;
+        return count++;
+    }
+
+    private void remove(int slot) {
+        int last = --count;
+        if (slot != last) {
+            objects[slot] = objects[last];
+            minX[slot] = minX[last];
+            maxX[slot] = maxX[last];
+            maxAngle[slot] = maxAngle[last];
+            phaseSeconds[slot] = phaseSeconds[last];
+            widthCycleSeconds[slot] = widthCycleSeconds[last];
+            widthStep[slot] = widthStep[last];
+            setSlot(objects[slot], slot);
+        }
+        objects[last] = null;
+    }
+
+    private static void setSlot(GameObject obj, int slot) {
+        if (obj instanceof Leaf) {
+            ((Leaf) obj).setWindSlot(slot);
+        } else {
+            ((Canopy) obj).setWindSlot(slot);
+        }
+    }
+
+    /**
+     * @return the number of leaves and canopies the wind field moves
+     */
+    public int size() { return count; }
+
+    /**
+     * @return the current strength of the wind, between 0 and 1
+     */
+    public float strength() { return strength; }
+
+    /**
+     * Advances the wind and moves the leaves and canopies within the view.
+     *
+     * @param deltaTime time passed since last update (seconds)
+     * @param viewMinX left edge of the area the camera shows, in world coordinates
+     * @param viewMaxX right edge of the area the camera shows, in world coordinates
+     */
+    public void update(float deltaTime, float viewMinX, float viewMaxX) {
+        time += deltaTime;
+        strength = Math.min(1f, BASE_STRENGTH
+                + GUST_AMPLITUDE * (float) Math.sin(2 * Math.PI * time / GUST_PERIOD_SECONDS)
+                + FLUTTER_AMPLITUDE * (float) Math.sin(2 * Math.PI * time / FLUTTER_PERIOD_SECONDS));
+
+        float viewLeft = viewMinX - VIEW_MARGIN;
+        float viewRight = viewMaxX + VIEW_MARGIN;
+        float widthScale = WIDTH_STEPS * strength;
+        for (int i = 0; i < count; i++) {
+            if (maxX[i] < viewLeft || minX[i] > viewRight) continue;
+
+            float t = time + phaseSeconds[i];
+            GameObject obj = objects[i];
+            obj.renderer().setRenderableAngle(maxAngle[i] * strength * swing(t / WIND_CYCLE_SECONDS));
+            if (widthStep[i] == FIXED_WIDTH) continue;
+
+            byte step = (byte) (WIDTH_STEPS + Math.round(widthScale * swing(t / widthCycleSeconds[i])));
+            if (step != widthStep[i]) {
+                widthStep[i] = step;
+                obj.setDimensions(WIDTH_DIMENSIONS[step]);
+            }
+        }
+    }
+
+    /**
+     * A triangle wave going back and forth between -1 and 1, taking one unit to go from one side
+     * to the other, like a back and forth linear transition.
+     *
+     * @param halfCycles time, in units of half cycles.
+     * @return the position on the wave.
+     */
+    private static float swing(float halfCycles) {
+        float cycle = halfCycles * 0.5f;
+        float f = cycle - (float) Math.floor(cycle);
+        return f < 0.5f ? 4f * f - 1f : 3f - 4f * f;
+    }
+}
@@ -0,0 +1,241 @@
+package pepse.world.ui;
+
+import danogl.GameObject;
+import danogl.components.CoordinateSpace;
+import danogl.gui.rendering.TextRenderable;
+import danogl.util.Vector2;
+
+import java.awt.event.KeyEvent;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.function.IntPredicate;
+
+/**
+ * A debug overlay showing how long frames take and how much the world holds.
+ *
+ * Shows the frame time (rolling average and worst of the last refresh), the time spent loading
+ * and unloading chunks, the number of loaded and cached chunks, the number of objects in a few
+ * layers and how fast the game thread allocates memory. Toggled with {@link #TOGGLE_KEY}.
+ *
+ * The overlay is rendered in camera coordinates below the energy display. Its text is rebuilt at
+ * most every {@link #REFRESH_SECONDS}, and only when a shown value changed, so it costs nothing
+ * noticeable per frame.
+ */
+public class PerformanceDisplay extends GameObject {
+    /**
+     * the key that shows and hides the overlay
+     */
+    public static final int TOGGLE_KEY = KeyEvent.VK_F3;
+
+    private static final String TAG = "performanceDisplay";
+    private static final Vector2 TOP_LEFT = new Vector2(10f, 45f);
+    private static final Vector2 DIMENSIONS = new Vector2(900f, 24f);
+
+    private static final float REFRESH_SECONDS = 0.25f;
+
+    /**
+     * weight of the newest sample in the rolling averages
+     */
+    private static final float AVERAGE_WEIGHT = 0.05f;
+
+    private final TextRenderable textRenderable;
+    private final IntPredicate keyPressed;
+    private final int[] layers;
+    private final String[] layerNames;
+    private final int[] layerCounts;
+    private final StringBuilder text = new StringBuilder();
+
+    /**
+     * null if the JVM can not measure per thread allocation
+     */
+    private final com.sun.management.ThreadMXBean allocationBean;
+    private final long gameThreadId = Thread.currentThread().getId();
+    private long lastAllocatedBytes;
+
+    private boolean visible = false;
+    private boolean togglePressedLastUpdate = false;
+    private float sinceRefresh = 0f;
+
+    private float averageFrameSeconds = 0f;
+    private float worstFrameSeconds = 0f;
+    private float averageChunkNanos = 0f;
+    private long worstChunkNanos = 0;
+    private int loadedChunks = 0;
+    private int cachedChunks = 0;
+
+    /**
+     * values as last shown, in tenths of their unit
+     */
+    private int shownAverageFrame = -1;
+    private int shownWorstFrame = -1;
+    private int shownAverageChunk = -1;
+    private int shownWorstChunk = -1;
+    private int shownAllocation = -1;
+    private int shownLoadedChunks = -1;
+    private int shownCachedChunks = -1;
+    private final int[] shownLayerCounts;
+
+    /**
+     * Creates the overlay, hidden.
+     *
+     * @param keyPressed tells whether a key, given by its {@link KeyEvent} code, is pressed.
+     * @param layers the layers whose objects are counted.
+     * @param layerNames the names the counted layers are shown with.
+     */
+    public PerformanceDisplay(IntPredicate keyPressed, int[] layers, String[] layerNames) {
+        super(TOP_LEFT, DIMENSIONS, new TextRenderable(""));
+        setCoordinateSpace(CoordinateSpace.CAMERA_COORDINATES);
+        setTag(TAG);
+
+        this.textRenderable = (TextRenderable) renderer().getRenderable();
+        this.keyPressed = keyPressed;
+        this.layers = layers.clone();
+        this.layerNames = layerNames.clone();
+        this.layerCounts = new int[layers.length];
+        this.shownLayerCounts = new int[layers.length];
+        renderer().setOpaqueness(0f);
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemorySupported()) {
+            allocationBean = (com.sun.management.ThreadMXBean) threads;
+            allocationBean.setThreadAllocatedMemoryEnabled(true);
+            lastAllocatedBytes = allocationBean.getThreadAllocatedBytes(gameThreadId);
+        } else {
+            allocationBean = null;
+        }
+    }
+
+    /**
+     * Counts an object added to the game.
+     *
+     * @param layer the layer of the object.
+     */
+    public void objectAdded(int layer) {
+        for (int i = 0; i < layers.length; i++) {
+            if (layers[i] == layer) {
+                layerCounts[i]++;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Counts an object removed from the game.
+     *
+     * @param layer the layer of the object.
+     */
+    public void objectRemoved(int layer) {
+        for (int i = 0; i < layers.length; i++) {
+            if (layers[i] == layer) {
+                layerCounts[i]--;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Records the chunk loading of a frame.
+     *
+     * @param nanos time spent loading and unloading chunks, in nanoseconds.
+     * @param loadedChunks number of loaded chunks.
+     * @param cachedChunks number of unloaded chunks that are cached.
+     */
+    public void recordChunkUpdate(long nanos, int loadedChunks, int cachedChunks) {
+        averageChunkNanos += (nanos - averageChunkNanos) * AVERAGE_WEIGHT;
+        worstChunkNanos = Math.max(worstChunkNanos, nanos);
+        this.loadedChunks = loadedChunks;
+        this.cachedChunks = cachedChunks;
+    }
+
+    /**
+     * Handles the toggle key, records the frame time and refreshes the text when it is due.
+     *
+     * @param deltaTime time passed since last update (seconds)
+     */
+    @Override
+    public void update(float deltaTime) {
+        super.update(deltaTime);
+
+        boolean togglePressed = keyPressed.test(TOGGLE_KEY);
+        if (togglePressed && !togglePressedLastUpdate) {
+            visible = !visible;
+            renderer().setOpaqueness(visible ? 1f : 0f);
+        }
+        togglePressedLastUpdate = togglePressed;
+
+        averageFrameSeconds += (deltaTime - averageFrameSeconds) * AVERAGE_WEIGHT;
+        worstFrameSeconds = Math.max(worstFrameSeconds, deltaTime);
+
+        sinceRefresh += deltaTime;
+        if (sinceRefresh < REFRESH_SECONDS) {
+            return;
+        }
+        int allocation = sampleAllocationTenthsMb(sinceRefresh);
+        if (visible) {
+            refresh(allocation);
+        }
+        sinceRefresh = 0f;
+        worstFrameSeconds = 0f;
+        worstChunkNanos = 0;
+    }
+
+    private int sampleAllocationTenthsMb(float seconds) {
+        if (allocationBean == null) {
+            return -1;
+        }
+        long allocated = allocationBean.getThreadAllocatedBytes(gameThreadId);
+        long bytes = allocated - lastAllocatedBytes;
+        lastAllocatedBytes = allocated;
+        return Math.round(bytes / seconds / 100_000f);
+    }
+
+    private void refresh(int allocation) {
+        int averageFrame = Math.round(averageFrameSeconds * 10_000f);
+        int worstFrame = Math.round(worstFrameSeconds * 10_000f);
+        int averageChunk = Math.round(averageChunkNanos / 100_000f);
+        int worstChunk = Math.round(worstChunkNanos / 100_000f);
+
+        boolean changed = averageFrame != shownAverageFrame || worstFrame != shownWorstFrame
+                || averageChunk != shownAverageChunk || worstChunk != shownWorstChunk
+                || allocation != shownAllocation
+                || loadedChunks != shownLoadedChunks || cachedChunks != shownCachedChunks;
+        for (int i = 0; i < layers.length && !changed; i++) {
+            changed = layerCounts[i] != shownLayerCounts[i];
+        }
+        if (!changed) {
+            return;
+        }
+
+        shownAverageFrame = averageFrame;
+        shownWorstFrame = worstFrame;
+        shownAverageChunk = averageChunk;
+        shownWorstChunk = worstChunk;
+        shownAllocation = allocation;
+        shownLoadedChunks = loadedChunks;
+        shownCachedChunks = cachedChunks;
+        System.arraycopy(layerCounts, 0, shownLayerCounts, 0, layers.length);
+
+        text.setLength(0);
+        text.append("frame ");
+        appendTenths(averageFrame).append('/');
+        appendTenths(worstFrame).append(" ms | chunks ");
+        appendTenths(averageChunk).append('/');
+        appendTenths(worstChunk).append(" ms, ");
+        text.append(loadedChunks).append(" loaded ").append(cachedChunks).append(" cached |");
+        for (int i = 0; i < layers.length; i++) {
+            text.append(' ').append(layerNames[i]).append(' ').append(layerCounts[i]);
+        }
+        text.append(" | alloc ");
+        if (allocation < 0) {
+            text.append("n/a");
+        } else {
+            appendTenths(allocation).append(" MB/s");
+        }
+        textRenderable.setString(text.toString());
+    }
+
+    private StringBuilder appendTenths(int tenths) {
+        return text.append(tenths / 10).append('.').append(tenths % 10);
+    }
+}